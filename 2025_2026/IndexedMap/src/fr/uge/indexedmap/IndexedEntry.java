@@ -0,0 +1,7 @@
+package fr.uge.indexedmap;
+
+public interface IndexedEntry<T> {
+    int index();
+
+    T value();
+}
@@ -1,5 +1,8 @@
 package fr.uge.indexedmap;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractList;
 import java.util.AbstractMap;
 import java.util.AbstractSet;
 import java.util.Collections;
@@ -8,11 +11,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.RandomAccess;
 import java.util.Set;
 import java.util.Spliterator;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.IntFunction;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -31,16 +36,333 @@ public final class IndexedMap<T> extends AbstractMap<Integer, T> {
         return new IndexedMap<>(List.of(elements));
     }
 
+    // Primitive backed lists, the values are only boxed when read through the List or Map API
+    private static final class IntArrayList extends AbstractList<Integer> implements RandomAccess {
+
+        private final int[] array;
+
+        private IntArrayList(int[] array) {
+            this.array = array;
+            super();
+        }
+
+        @Override
+        public Integer get(int index) {
+            return array[index];
+        }
+
+        @Override
+        public int size() {
+            return array.length;
+        }
+    }
+
+    private static final class LongArrayList extends AbstractList<Long> implements RandomAccess {
+
+        private final long[] array;
+
+        private LongArrayList(long[] array) {
+            this.array = array;
+            super();
+        }
+
+        @Override
+        public Long get(int index) {
+            return array[index];
+        }
+
+        @Override
+        public int size() {
+            return array.length;
+        }
+    }
+
+    private static final class DoubleArrayList extends AbstractList<Double> implements RandomAccess {
+
+        private final double[] array;
+
+        private DoubleArrayList(double[] array) {
+            this.array = array;
+            super();
+        }
+
+        @Override
+        public Double get(int index) {
+            return array[index];
+        }
+
+        @Override
+        public int size() {
+            return array.length;
+        }
+    }
+
+    // Chunk k holds FIRST_CHUNK << k elements, so growing never copies the elements already appended.
+    // Single writer: the element is stored before the size is published, a reader only sees a filled prefix.
+    private static final class ChunkedList<E> extends AbstractList<E> implements RandomAccess {
+
+        private static final int FIRST_CHUNK_SHIFT = 4;
+
+        private static final int FIRST_CHUNK = 1 << FIRST_CHUNK_SHIFT;
+
+        private static final int MAX_SIZE = Integer.MAX_VALUE - FIRST_CHUNK + 1;
+
+        private static final VarHandle SIZE;
+
+        static {
+            try {
+                SIZE = MethodHandles.lookup().findVarHandle(ChunkedList.class, "size", int.class);
+            } catch (NoSuchFieldException | IllegalAccessException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        private final Object[][] chunks = new Object[32 - FIRST_CHUNK_SHIFT][];
+
+        private int size;
+
+        private static int chunkIndex(int index) {
+            return 31 - Integer.numberOfLeadingZeros(index + FIRST_CHUNK) - FIRST_CHUNK_SHIFT;
+        }
+
+        private static int offset(int index) {
+            var position = index + FIRST_CHUNK;
+            return position - Integer.highestOneBit(position);
+        }
+
+        private int append(E element) {
+            var index = size;
+            if (index == MAX_SIZE) {
+                throw new IllegalStateException("too many elements");
+            }
+            var chunkIndex = chunkIndex(index);
+            var chunk = chunks[chunkIndex];
+            if (chunk == null) {
+                chunk = new Object[FIRST_CHUNK << chunkIndex];
+                chunks[chunkIndex] = chunk;
+            }
+            chunk[offset(index)] = element;
+            SIZE.setRelease(this, index + 1);
+            return index;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E get(int index) {
+            Objects.checkIndex(index, size());
+            return (E) chunks[chunkIndex(index)][offset(index)];
+        }
+
+        @Override
+        public int size() {
+            return (int) SIZE.getAcquire(this);
+        }
+    }
+
+    public static <E> IndexedMap<E> growable() {
+        return new IndexedMap<>(new ChunkedList<>());
+    }
+
+    public int append(T element) {
+        Objects.requireNonNull(element);
+        if (!(elements instanceof ChunkedList<T> list)) {
+            throw new UnsupportedOperationException("not a growable map");
+        }
+        return list.append(element);
+    }
+
+    // Keys are offset + the set bits of the occupancy words, the value of a key is at the rank of its bit
+    private static final class SparseList<E> extends AbstractList<E> implements RandomAccess {
+
+        private final int offset;
+
+        private final long[] words;
+
+        private final int[] ranks;
+
+        private final Object[] values;
+
+        private SparseList(int offset, long[] words, int size) {
+            var ranks = new int[words.length];
+            for (var i = 1; i < words.length; i++) {
+                ranks[i] = ranks[i - 1] + Long.bitCount(words[i - 1]);
+            }
+            this.offset = offset;
+            this.words = words;
+            this.ranks = ranks;
+            this.values = new Object[size];
+            super();
+        }
+
+        private int position(int key) {
+            var bit = (long) key - offset;
+            var wordIndex = (int) (bit >> 6);
+            if (bit < 0 || wordIndex >= words.length) {
+                return -1;
+            }
+            var word = words[wordIndex];
+            var mask = 1L << bit;
+            return (word & mask) == 0 ? -1 : ranks[wordIndex] + Long.bitCount(word & (mask - 1));
+        }
+
+        private int keyAt(int position) {
+            Objects.checkIndex(position, values.length);
+            var low = 0;
+            var high = ranks.length - 1;
+            while (low < high) {
+                var middle = (low + high + 1) >>> 1;
+                if (ranks[middle] <= position) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            var word = words[low];
+            for (var i = position - ranks[low]; i > 0; i--) {
+                word &= word - 1;
+            }
+            return offset + (low << 6) + Long.numberOfTrailingZeros(word);
+        }
+
+        private int nextKey(int key) {
+            var bit = (long) key - offset + 1;
+            var wordIndex = (int) (bit >>> 6);
+            if (wordIndex >= words.length) {
+                return key;
+            }
+            var word = words[wordIndex] & (-1L << bit);
+            while (word == 0) {
+                if (++wordIndex == words.length) {
+                    return key;
+                }
+                word = words[wordIndex];
+            }
+            return offset + (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E get(int index) {
+            return (E) values[index];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+
+    public static <E> IndexedMap<E> ofSparse(Map<Integer, ? extends E> map) {
+        Objects.requireNonNull(map);
+        if (map.isEmpty()) {
+            return new IndexedMap<>(new SparseList<>(0, new long[0], 0));
+        }
+        var min = Integer.MAX_VALUE;
+        var max = Integer.MIN_VALUE;
+        for (var key : map.keySet()) {
+            min = Math.min(min, key);
+            max = Math.max(max, key);
+        }
+        var words = new long[(int) (((long) max - min) >>> 6) + 1];
+        for (var key : map.keySet()) {
+            var bit = (long) key - min;
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        var list = new SparseList<E>(min, words, map.size());
+        map.forEach((key, value) -> list.values[list.position(key)] = Objects.requireNonNull(value));
+        return new IndexedMap<>(list);
+    }
+
+    public static IndexedMap<Integer> ofInts(int... elements) {
+        return new IndexedMap<>(new IntArrayList(elements.clone()));
+    }
+
+    public static IndexedMap<Long> ofLongs(long... elements) {
+        return new IndexedMap<>(new LongArrayList(elements.clone()));
+    }
+
+    public static IndexedMap<Double> ofDoubles(double... elements) {
+        return new IndexedMap<>(new DoubleArrayList(elements.clone()));
+    }
+
     @Override
     public int size() {
         return elements.size();
     }
 
+    // Position of the key in elements, -1 if there is no such key
+    private int position(int key) {
+        if (elements instanceof SparseList<T> list) {
+            return list.position(key);
+        }
+        return key >= 0 && key < elements.size() ? key : -1;
+    }
+
+    private int checkedPosition(int key) {
+        var position = position(key);
+        if (position == -1) {
+            throw new IndexOutOfBoundsException("No element at index " + key);
+        }
+        return position;
+    }
+
+    private int keyAt(int position) {
+        return elements instanceof SparseList<T> list ? list.keyAt(position) : position;
+    }
+
+    private int firstKey() {
+        return elements instanceof SparseList<T> list ? list.offset : 0;
+    }
+
+    private int nextKey(int key) {
+        return elements instanceof SparseList<T> list ? list.nextKey(key) : key + 1;
+    }
+
+    public int getInt(int index) {
+        var position = checkedPosition(index);
+        if (elements instanceof IntArrayList list) {
+            return list.array[position];
+        }
+        return (Integer) elements.get(position);
+    }
+
+    public long getLong(int index) {
+        var position = checkedPosition(index);
+        if (elements instanceof LongArrayList list) {
+            return list.array[position];
+        }
+        return (Long) elements.get(position);
+    }
+
+    public double getDouble(int index) {
+        var position = checkedPosition(index);
+        if (elements instanceof DoubleArrayList list) {
+            return list.array[position];
+        }
+        return (Double) elements.get(position);
+    }
+
+    public IntStream indices() {
+        if (elements instanceof SparseList<T> list) {
+            return IntStream.iterate(list.offset, list::nextKey).limit(list.size()); // Each key is found from the previous one
+        }
+        return IntStream.range(0, elements.size());
+    }
+
+    public void forEachIndexed(IntObjConsumer<? super T> action) {
+        Objects.requireNonNull(action);
+        var key = firstKey();
+        for (var i = 0; i < elements.size(); i++, key = nextKey(key)) {
+            action.accept(key, elements.get(i));
+        }
+    }
+
     public T getValueOrDefault(int index, T defaultValue){
-        if(index < 0 || index >= elements.size()){
+        var position = position(index);
+        if(position == -1){
             return defaultValue;
         }
-        return elements.get(index);
+        return elements.get(position);
     }
 
     private <E> Iterator<E> mappedIterator(IntFunction<E> mapper){
@@ -48,6 +370,8 @@ public final class IndexedMap<T> extends AbstractMap<Integer, T> {
 
             private int index;
 
+            private int key = firstKey();
+
             @Override
             public boolean hasNext() {
                 return index < elements.size();
@@ -58,7 +382,10 @@ public final class IndexedMap<T> extends AbstractMap<Integer, T> {
                 if(!hasNext()){
                     throw new NoSuchElementException();
                 }
-                return mapper.apply(index++);
+                var result = mapper.apply(key);
+                index++;
+                key = nextKey(key);
+                return result;
             }
 
         };
@@ -93,16 +420,49 @@ public final class IndexedMap<T> extends AbstractMap<Integer, T> {
     @Override
     public void forEach(BiConsumer<? super Integer, ? super T> action) {
         Objects.requireNonNull(action);
-        for(int i = 0; i < elements.size(); i++){
-            action.accept(i, elements.get(i));
+        var key = firstKey();
+        for(int i = 0; i < elements.size(); i++, key = nextKey(key)){
+            action.accept(key, elements.get(i));
+        }
+    }
+
+    // The same entry is reused for every element, it must not escape the action
+    public void forEachEntry(Consumer<? super IndexedEntry<T>> action) {
+        Objects.requireNonNull(action);
+        var cursor = new IndexedEntry<T>() {
+
+            private int position;
+
+            private int key = firstKey();
+
+            @Override
+            public int index() {
+                return key;
+            }
+
+            @Override
+            public T value() {
+                return elements.get(position);
+            }
+
+            @Override
+            public String toString() {
+                return key + "=" + value();
+            }
+        };
+        for (; cursor.position < elements.size(); cursor.position++, cursor.key = nextKey(cursor.key)) {
+            action.accept(cursor);
         }
     }
 
     @Override
     public T get(Object key) {
         Objects.requireNonNull(key);
-        if(key instanceof Integer index && index >= 0 && index < elements.size()){
-            return elements.get(index);
+        if(key instanceof Integer index){
+            var position = position(index);
+            if(position != -1){
+                return elements.get(position);
+            }
         }
         return null;
     }
@@ -113,7 +473,7 @@ public final class IndexedMap<T> extends AbstractMap<Integer, T> {
 
             @Override
             public Iterator<Entry<Integer, T>> iterator() {
-                return mappedIterator(index -> Map.entry(index, elements.get(index)));
+                return mappedIterator(index -> Map.entry(index, elements.get(position(index))));
             }
 
             @Override
@@ -123,11 +483,11 @@ public final class IndexedMap<T> extends AbstractMap<Integer, T> {
 
             @Override
             public boolean contains(Object other) {
-                return other instanceof Map.Entry<?,?> entry
-                    && entry.getKey() instanceof Integer index
-                    && index >= 0
-                    && index < elements.size()
-                    && elements.get(index).equals(entry.getValue());
+                if (!(other instanceof Map.Entry<?,?> entry && entry.getKey() instanceof Integer index)) {
+                    return false;
+                }
+                var position = position(index);
+                return position != -1 && elements.get(position).equals(entry.getValue());
             }
 
         };
@@ -135,32 +495,50 @@ public final class IndexedMap<T> extends AbstractMap<Integer, T> {
 
     @Override
     public boolean containsKey(Object key) {
-        return key instanceof Integer index && index >= 0 && index < elements.size();
+        return key instanceof Integer index && position(index) != -1;
     }
 
-    private Spliterator<Entry<Integer, T>> indexedSpliterator(int start, int end) {
+    // startKey is the key at start, the next ones are found from it instead of being searched from their position
+    private Spliterator<Entry<Integer, T>> indexedSpliterator(int start, int end, int startKey) {
         return new Spliterator<>() {
 
             private int index = start;
 
+            private int key = startKey;
+
             @Override
             public boolean tryAdvance(Consumer<? super Entry<Integer, T>> action) {
                 Objects.requireNonNull(action);
                 if (index < end) {
-                    action.accept(Map.entry(index, elements.get(index++)));
+                    var entry = Map.entry(key, elements.get(index++));
+                    key = nextKey(key);
+                    action.accept(entry);
                     return true;
                 }
                 return false;
             }
 
+            @Override
+            public void forEachRemaining(Consumer<? super Entry<Integer, T>> action) {
+                Objects.requireNonNull(action);
+                var from = index;
+                var key = this.key;
+                index = end;
+                for (var i = from; i < end; i++, key = nextKey(key)) {
+                    action.accept(Map.entry(key, elements.get(i)));
+                }
+                this.key = key;
+            }
+
             @Override
             public Spliterator<Entry<Integer, T>> trySplit() {
                 var middle = (index + end) >>> 1;
                 if(middle == index){
                     return null;
                 }
-                var spliterator = indexedSpliterator(index, middle);
+                var spliterator = indexedSpliterator(index, middle, key);
                 index = middle;
+                key = keyAt(middle);
                 return spliterator;
             }
 
@@ -179,7 +557,7 @@ public final class IndexedMap<T> extends AbstractMap<Integer, T> {
     }
 
     public Stream<Entry<Integer, T>> stream(){
-        return StreamSupport.stream(indexedSpliterator(0, elements.size()), false);
+        return StreamSupport.stream(indexedSpliterator(0, elements.size(), firstKey()), false);
     }
 
 }
@@ -1391,4 +1391,437 @@ public class IndexedMapTest {
     }
   }
 
+  @Nested
+  public class PrimitiveMaps {
+
+    @Test
+    public void testOfInts() {
+      var map = IndexedMap.ofInts(4, 8, 15);
+      assertEquals(3, map.size());
+      assertEquals(8, map.get(1));
+      assertEquals(15, map.getInt(2));
+      assertEquals(Map.of(0, 4, 1, 8, 2, 15), map);
+      assertEquals(List.of(4, 8, 15), map.values());
+    }
+
+    @Test
+    public void testOfLongs() {
+      var map = IndexedMap.ofLongs(1L << 40, -3L);
+      assertEquals(1L << 40, map.getLong(0));
+      assertEquals(-3L, map.get(1));
+      assertEquals(List.of(1L << 40, -3L), map.stream().map(Map.Entry::getValue).toList());
+    }
+
+    @Test
+    public void testOfDoubles() {
+      var map = IndexedMap.ofDoubles(0.5, Double.NaN);
+      assertEquals(0.5, map.getDouble(0));
+      assertTrue(Double.isNaN(map.getDouble(1)));
+      assertEquals(0.5, map.getValueOrDefault(0, 1.0));
+    }
+
+    @Test
+    public void testOfPrimitivesCopiesTheArray() {
+      var ints = new int[] { 1, 2, 3 };
+      var map = IndexedMap.ofInts(ints);
+      ints[1] = 42;
+      assertEquals(2, map.getInt(1));
+    }
+
+    @Test
+    public void testOfPrimitivesNull() {
+      assertThrows(NullPointerException.class, () -> IndexedMap.ofInts((int[]) null));
+      assertThrows(NullPointerException.class, () -> IndexedMap.ofLongs((long[]) null));
+      assertThrows(NullPointerException.class, () -> IndexedMap.ofDoubles((double[]) null));
+    }
+
+    @Test
+    public void testOfPrimitivesIsUnmodifiable() {
+      var map = IndexedMap.ofInts(1, 2);
+      assertThrows(UnsupportedOperationException.class, () -> map.put(0, 3));
+      assertThrows(UnsupportedOperationException.class, () -> map.values().set(0, 3));
+    }
+
+    @Test
+    public void testPrimitiveGettersOnBoxedMap() {
+      var map = IndexedMap.of(3, 4);
+      assertEquals(4, map.getInt(1));
+      var longs = IndexedMap.of(5L);
+      assertEquals(5L, longs.getLong(0));
+    }
+
+    @Test
+    public void testPrimitiveGettersOutOfBounds() {
+      var map = IndexedMap.ofInts(1, 2);
+      assertThrows(IndexOutOfBoundsException.class, () -> map.getInt(2));
+      assertThrows(IndexOutOfBoundsException.class, () -> map.getInt(-1));
+      assertThrows(IndexOutOfBoundsException.class, () -> IndexedMap.ofLongs().getLong(0));
+      assertThrows(IndexOutOfBoundsException.class, () -> IndexedMap.ofDoubles(1.0).getDouble(1));
+    }
+
+    @Test
+    public void testPrimitiveGettersWrongType() {
+      var map = IndexedMap.of("a");
+      assertThrows(ClassCastException.class, () -> map.getInt(0));
+    }
+
+    @Test
+    public void testIndices() {
+      assertArrayEquals(new int[] { 0, 1, 2 }, IndexedMap.of("a", "b", "c").indices().toArray());
+      assertEquals(0, IndexedMap.of().indices().count());
+    }
+
+    @Test
+    public void testForEachIndexed() {
+      var map = IndexedMap.of("a", "b", "c");
+      var builder = new StringBuilder();
+      map.forEachIndexed((index, element) -> builder.append(index).append(element));
+      assertEquals("0a1b2c", builder.toString());
+      assertThrows(NullPointerException.class, () -> map.forEachIndexed(null));
+    }
+
+    @Test
+    public void testIterationDoesNotAllocate() {
+      var map = IndexedMap.ofInts(IntStream.range(0, 10_000_000).toArray());
+      var threadMXBean = (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+      var threadId = Thread.currentThread().threadId();
+      assertEquals(49_999_995_000_000L, map.indices().mapToLong(map::getInt).sum());
+      var before = threadMXBean.getThreadAllocatedBytes(threadId);
+      var sum = map.indices().mapToLong(map::getInt).sum();
+      var allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+      assertEquals(49_999_995_000_000L, sum);
+      assertTrue(allocated < 100_000, "" + allocated);
+    }
+  }
+
+  @Nested
+  public class FlyweightEntries {
+
+    @Test
+    public void testForEachEntry() {
+      var map = IndexedMap.of("a", "b", "c");
+      var builder = new StringBuilder();
+      map.forEachEntry(entry -> builder.append(entry.index()).append(entry.value()));
+      assertEquals("0a1b2c", builder.toString());
+    }
+
+    @Test
+    public void testForEachEntryReusesTheEntry() {
+      var map = IndexedMap.of("a", "b", "c");
+      var entries = new ArrayList<IndexedEntry<String>>();
+      map.forEachEntry(entries::add);
+      assertEquals(3, entries.size());
+      assertSame(entries.get(0), entries.get(2));
+    }
+
+    @Test
+    public void testForEachEntryToString() {
+      var map = IndexedMap.of("a", "b");
+      var strings = new ArrayList<String>();
+      map.forEachEntry(entry -> strings.add(entry.toString()));
+      assertEquals(List.of("0=a", "1=b"), strings);
+    }
+
+    @Test
+    public void testForEachEntryOnEmptyMap() {
+      IndexedMap.of().forEachEntry(_ -> fail());
+    }
+
+    @Test
+    public void testForEachEntryNull() {
+      assertThrows(NullPointerException.class, () -> IndexedMap.of("a").forEachEntry(null));
+    }
+
+    @Test
+    public void testForEachEntryDoesNotAllocate() {
+      var map = IndexedMap.of(IntStream.range(0, 1_000_000).mapToObj(i -> "" + (i % 10)).toArray(String[]::new));
+      var threadMXBean = (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+      var threadId = Thread.currentThread().threadId();
+      var sum = new long[1];
+      map.forEachEntry(entry -> sum[0] += entry.index() + entry.value().length());
+      var before = threadMXBean.getThreadAllocatedBytes(threadId);
+      map.forEachEntry(entry -> sum[0] += entry.index() + entry.value().length());
+      var allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+      assertEquals(2 * (499_999_500_000L + 1_000_000L), sum[0]);
+      assertTrue(allocated < 100_000, "" + allocated);
+    }
+
+    @Test
+    public void testSpliteratorForEachRemaining() {
+      var map = IndexedMap.of("a", "b", "c", "d");
+      var spliterator = map.stream().spliterator();
+      var keys = new ArrayList<Integer>();
+      assertTrue(spliterator.tryAdvance(entry -> keys.add(entry.getKey())));
+      spliterator.forEachRemaining(entry -> keys.add(entry.getKey()));
+      assertEquals(List.of(0, 1, 2, 3), keys);
+      assertFalse(spliterator.tryAdvance(_ -> fail()));
+      assertEquals(0, spliterator.estimateSize());
+    }
+
+    @Test
+    public void testSpliteratorForEachRemainingAfterSplit() {
+      var map = IndexedMap.of("a", "b", "c", "d");
+      var spliterator = map.stream().spliterator();
+      var prefix = spliterator.trySplit();
+      var values = new ArrayList<String>();
+      spliterator.forEachRemaining(entry -> values.add(entry.getValue()));
+      prefix.forEachRemaining(entry -> values.add(entry.getValue()));
+      assertEquals(List.of("c", "d", "a", "b"), values);
+    }
+
+    @Test
+    public void testSpliteratorForEachRemainingNull() {
+      var spliterator = IndexedMap.of("a").stream().spliterator();
+      assertThrows(NullPointerException.class, () -> spliterator.forEachRemaining(null));
+    }
+  }
+
+  @Nested
+  public class Growable {
+
+    @Test
+    public void testAppendReturnsTheIndex() {
+      var map = IndexedMap.<String>growable();
+      assertEquals(0, map.size());
+      assertEquals(0, map.append("a"));
+      assertEquals(1, map.append("b"));
+      assertEquals(2, map.size());
+      assertEquals("b", map.get(1));
+      assertEquals(Map.of(0, "a", 1, "b"), map);
+    }
+
+    @Test
+    public void testAppendManyElements() {
+      var map = IndexedMap.<Integer>growable();
+      for (var i = 0; i < 1_000_000; i++) {
+        assertEquals(i, map.append(i));
+      }
+      assertEquals(1_000_000, map.size());
+      for (var i = 0; i < 1_000_000; i++) {
+        assertEquals(i, map.getInt(i));
+      }
+      assertEquals(499_999_500_000L, map.stream().mapToLong(Map.Entry::getValue).sum());
+      assertNull(map.get(1_000_000));
+      assertFalse(map.containsKey(1_000_000));
+    }
+
+    @Test
+    public void testViewsSeeAppendedElements() {
+      var map = IndexedMap.<String>growable();
+      var values = map.values();
+      var keySet = map.keySet();
+      map.append("a");
+      map.append("b");
+      assertEquals(List.of("a", "b"), values);
+      assertEquals(Set.of(0, 1), keySet);
+    }
+
+    @Test
+    public void testStreamIsASnapshot() {
+      var map = IndexedMap.<String>growable();
+      map.append("a");
+      var stream = map.stream();
+      map.append("b");
+      assertEquals(1, stream.count());
+    }
+
+    @Test
+    public void testAppendNull() {
+      var map = IndexedMap.<String>growable();
+      assertThrows(NullPointerException.class, () -> map.append(null));
+      assertEquals(0, map.size());
+    }
+
+    @Test
+    public void testAppendOnFrozenMap() {
+      assertThrows(UnsupportedOperationException.class, () -> IndexedMap.of("a").append("b"));
+      assertThrows(UnsupportedOperationException.class, () -> IndexedMap.ofInts(1).append(2));
+    }
+
+    @Test
+    public void testGrowableIsNotModifiableThroughTheMapAPI() {
+      var map = IndexedMap.<String>growable();
+      map.append("a");
+      assertThrows(UnsupportedOperationException.class, () -> map.put(1, "b"));
+      assertThrows(UnsupportedOperationException.class, () -> map.values().set(0, "b"));
+    }
+
+    @Test
+    public void testConcurrentReadersSeeAPrefix() throws InterruptedException {
+      var map = IndexedMap.<Integer>growable();
+      var failures = new AtomicInteger();
+      var readers = new ArrayList<Thread>();
+      for (var t = 0; t < 4; t++) {
+        readers.add(Thread.ofPlatform().start(() -> {
+          var size = 0;
+          while (size < 1_000_000) {
+            size = map.size();
+            if (size != 0 && map.get(size - 1) != size - 1) {
+              failures.incrementAndGet();
+            }
+          }
+        }));
+      }
+      for (var i = 0; i < 1_000_000; i++) {
+        map.append(i);
+      }
+      for (var reader : readers) {
+        reader.join();
+      }
+      assertEquals(0, failures.get());
+    }
+  }
+
+  @Nested
+  public class Sparse {
+
+    @Test
+    public void testGetAndContainsKey() {
+      var map = IndexedMap.ofSparse(Map.of(1_000_000, "a", 1_000_070, "b", 1_000_003, "c"));
+      assertEquals(3, map.size());
+      assertEquals("a", map.get(1_000_000));
+      assertEquals("c", map.get(1_000_003));
+      assertEquals("b", map.get(1_000_070));
+      assertNull(map.get(1_000_001));
+      assertNull(map.get(0));
+      assertNull(map.get(1_000_071));
+      assertTrue(map.containsKey(1_000_070));
+      assertFalse(map.containsKey(1_000_069));
+      assertFalse(map.containsKey(-1));
+      assertFalse(map.containsKey("a"));
+      assertEquals("z", map.getValueOrDefault(2, "z"));
+    }
+
+    @Test
+    public void testIterationFollowsTheKeys() {
+      var map = IndexedMap.ofSparse(Map.of(500, "a", 70, "b", 130, "c", 64, "d"));
+      assertEquals(List.of(64, 70, 130, 500), List.copyOf(map.keySet()));
+      assertEquals(List.of("d", "b", "c", "a"), map.values());
+      assertEquals(List.of(Map.entry(64, "d"), Map.entry(70, "b"), Map.entry(130, "c"), Map.entry(500, "a")),
+          map.stream().toList());
+      assertEquals(List.copyOf(map.entrySet()), map.stream().toList());
+      assertArrayEquals(new int[] { 64, 70, 130, 500 }, map.indices().toArray());
+      assertEquals("{64=d, 70=b, 130=c, 500=a}", map.toString());
+    }
+
+    @Test
+    public void testForEachVariants() {
+      var map = IndexedMap.ofSparse(Map.of(10, "a", 200, "b"));
+      var builder = new StringBuilder();
+      map.forEach((key, value) -> builder.append(key).append(value));
+      map.forEachIndexed((key, value) -> builder.append(key).append(value));
+      map.forEachEntry(entry -> builder.append(entry));
+      assertEquals("10a200b10a200b10=a200=b", builder.toString());
+    }
+
+    @Test
+    public void testEqualsHashMap() {
+      var hashMap = new HashMap<Integer, Integer>();
+      var random = new Random(0);
+      for (var i = 0; i < 10_000; i++) {
+        var key = 5_000_000 + random.nextInt(100_000);
+        hashMap.put(key, key * 2);
+      }
+      var map = IndexedMap.ofSparse(hashMap);
+      assertEquals(hashMap, map);
+      assertEquals(map, hashMap);
+      assertEquals(hashMap.hashCode(), map.hashCode());
+      for (var key = 4_999_000; key < 5_101_000; key++) {
+        assertEquals(hashMap.get(key), map.get(key));
+        assertEquals(hashMap.containsKey(key), map.containsKey(key));
+      }
+      assertEquals(new TreeMap<>(hashMap).entrySet().stream().toList(), map.stream().parallel().toList());
+      assertTrue(map.entrySet().contains(Map.entry(map.indices().findFirst().orElseThrow(), map.values().getFirst())));
+    }
+
+    @Test
+    public void testNegativeAndExtremeKeys() {
+      var map = IndexedMap.ofSparse(Map.of(-200, "a", -1, "b", 3, "c"));
+      assertEquals("a", map.get(-200));
+      assertEquals("b", map.get(-1));
+      assertNull(map.get(0));
+      assertArrayEquals(new int[] { -200, -1, 3 }, map.indices().toArray());
+      var extremes = IndexedMap.ofSparse(Map.of(Integer.MAX_VALUE - 100, "a", Integer.MAX_VALUE, "b"));
+      assertEquals("b", extremes.get(Integer.MAX_VALUE));
+      assertNull(extremes.get(Integer.MIN_VALUE));
+      assertEquals(List.of(Integer.MAX_VALUE - 100, Integer.MAX_VALUE), List.copyOf(extremes.keySet()));
+      var minimum = IndexedMap.ofSparse(Map.of(Integer.MIN_VALUE, "a", Integer.MIN_VALUE + 64, "b"));
+      assertEquals("b", minimum.get(Integer.MIN_VALUE + 64));
+      assertNull(minimum.get(Integer.MAX_VALUE));
+      assertArrayEquals(new int[] { Integer.MIN_VALUE, Integer.MIN_VALUE + 64 }, minimum.indices().toArray());
+    }
+
+    @Test
+    public void testPrimitiveGetters() {
+      var map = IndexedMap.ofSparse(Map.of(100, 1, 300, 3));
+      assertEquals(3, map.getInt(300));
+      assertThrows(IndexOutOfBoundsException.class, () -> map.getInt(200));
+    }
+
+    @Test
+    public void testEmpty() {
+      var map = IndexedMap.ofSparse(Map.of());
+      assertEquals(0, map.size());
+      assertTrue(map.isEmpty());
+      assertNull(map.get(0));
+      assertFalse(map.keySet().iterator().hasNext());
+      assertEquals(0, map.stream().count());
+      assertEquals(0, map.indices().count());
+    }
+
+    @Test
+    public void testNulls() {
+      assertThrows(NullPointerException.class, () -> IndexedMap.ofSparse(null));
+      var withNullValue = new HashMap<Integer, String>();
+      withNullValue.put(3, null);
+      assertThrows(NullPointerException.class, () -> IndexedMap.ofSparse(withNullValue));
+      var withNullKey = new HashMap<Integer, String>();
+      withNullKey.put(null, "a");
+      assertThrows(NullPointerException.class, () -> IndexedMap.ofSparse(withNullKey));
+    }
+
+    @Test
+    public void testIsUnmodifiable() {
+      var map = IndexedMap.ofSparse(Map.of(7, "a"));
+      assertThrows(UnsupportedOperationException.class, () -> map.put(8, "b"));
+      assertThrows(UnsupportedOperationException.class, () -> map.append("b"));
+    }
+
+    @Test
+    public void testSpliteratorKeepsTheKeysAcrossSplits() {
+      var hashMap = new HashMap<Integer, Integer>();
+      for (var i = 0; i < 1_000; i++) {
+        hashMap.put(i * i, i);
+      }
+      var map = IndexedMap.ofSparse(hashMap);
+      var spliterator = map.stream().spliterator();
+      var prefix = spliterator.trySplit();
+      var keys = new ArrayList<Integer>();
+      assertTrue(prefix.tryAdvance(entry -> keys.add(entry.getKey())));
+      assertTrue(prefix.tryAdvance(entry -> keys.add(entry.getKey())));
+      prefix.forEachRemaining(entry -> keys.add(entry.getKey()));
+      assertFalse(prefix.tryAdvance(entry -> fail()));
+      assertTrue(spliterator.tryAdvance(entry -> assertEquals(entry.getValue() * entry.getValue(), entry.getKey())));
+      spliterator.forEachRemaining(entry -> keys.add(entry.getKey()));
+      assertEquals(999, keys.size());
+      assertEquals(IntStream.range(0, 1_000).filter(i -> i != 500).mapToObj(i -> i * i).toList(), keys);
+      assertEquals(IntStream.range(0, 1_000).map(i -> i * i).boxed().toList(), map.indices().boxed().toList());
+      assertEquals(hashMap.keySet().stream().mapToLong(i -> i).sum(),
+          map.stream().parallel().mapToLong(Map.Entry::getKey).sum());
+    }
+
+    @Test
+    public void testGetFastEnough() {
+      var hashMap = new HashMap<Integer, Integer>();
+      for (var i = 0; i < 1_000_000; i++) {
+        hashMap.put(1_000_000_000 + i * 3, i);
+      }
+      var map = IndexedMap.ofSparse(hashMap);
+      assertTimeoutPreemptively(Duration.ofMillis(1_000), () -> {
+        for (var i = 0; i < 1_000_000; i++) {
+          assertEquals(i, map.getInt(1_000_000_000 + i * 3));
+        }
+      });
+    }
+  }
 }
\ No newline at end of file
@@ -0,0 +1,6 @@
+package fr.uge.indexedmap;
+
+@FunctionalInterface
+public interface IntObjConsumer<T> {
+    void accept(int index, T element);
+}
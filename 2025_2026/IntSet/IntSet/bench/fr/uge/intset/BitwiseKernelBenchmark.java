@@ -0,0 +1,131 @@
+package fr.uge.intset;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Densities above 1/16 keep every chunk in a bitmap container, so IntSet runs its Vector API kernels.
+// The scalar methods run the same word loops over plain int arrays holding the same bits.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+@State(Scope.Benchmark)
+public class BitwiseKernelBenchmark {
+
+    @Param({ "1048576", "16777216" })
+    public int universe;
+
+    @Param({ "0.1", "0.5" })
+    public double density;
+
+    private IntSet first;
+
+    private IntSet second;
+
+    private int[] firstWords;
+
+    private int[] secondWords;
+
+    @Setup
+    public void setup() {
+        var random = new Random(0);
+        first = new IntSet();
+        second = new IntSet();
+        firstWords = new int[universe >> 5];
+        secondWords = new int[universe >> 5];
+        for (var value = 0; value < universe; value++) {
+            if (random.nextDouble() < density) {
+                first.add(value);
+                firstWords[value >> 5] |= 1 << (value & 31);
+            }
+            if (random.nextDouble() < density) {
+                second.add(value);
+                secondWords[value >> 5] |= 1 << (value & 31);
+            }
+        }
+    }
+
+    @Benchmark
+    public int andCardinalityIntSet() {
+        return first.andCardinality(second);
+    }
+
+    @Benchmark
+    public int andCardinalityScalar() {
+        var totalBits = 0;
+        for (var i = 0; i < firstWords.length; i++) {
+            totalBits += Integer.bitCount(firstWords[i] & secondWords[i]);
+        }
+        return totalBits;
+    }
+
+    @Benchmark
+    public int xorCardinalityIntSet() {
+        return first.xorCardinality(second);
+    }
+
+    @Benchmark
+    public int xorCardinalityScalar() {
+        var totalBits = 0;
+        for (var i = 0; i < firstWords.length; i++) {
+            totalBits += Integer.bitCount(firstWords[i] ^ secondWords[i]);
+        }
+        return totalBits;
+    }
+
+    @Benchmark
+    public IntSet andIntSet() {
+        return IntSet.and(first, second);
+    }
+
+    @Benchmark
+    public int[] andScalar() {
+        var words = new int[firstWords.length];
+        for (var i = 0; i < words.length; i++) {
+            words[i] = firstWords[i] & secondWords[i];
+        }
+        return words;
+    }
+
+    @Benchmark
+    public IntSet orIntSet() {
+        return IntSet.or(first, second);
+    }
+
+    @Benchmark
+    public int[] orScalar() {
+        var words = new int[firstWords.length];
+        for (var i = 0; i < words.length; i++) {
+            words[i] = firstWords[i] | secondWords[i];
+        }
+        return words;
+    }
+
+    @Benchmark
+    public IntSet xorIntSet() {
+        return IntSet.xor(first, second);
+    }
+
+    @Benchmark
+    public int[] xorScalar() {
+        var words = new int[firstWords.length];
+        for (var i = 0; i < words.length; i++) {
+            words[i] = firstWords[i] ^ secondWords[i];
+        }
+        return words;
+    }
+
+}
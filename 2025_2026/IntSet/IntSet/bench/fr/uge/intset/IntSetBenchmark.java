@@ -0,0 +1,157 @@
+package fr.uge.intset;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+@State(Scope.Benchmark)
+public class IntSetBenchmark {
+
+    private static final int PROBES = 1 << 12;
+
+    @Param({ "100000", "10000000" })
+    public int universe;
+
+    @Param({ "0.001", "0.05", "0.5" })
+    public double density;
+
+    private int[] values;
+
+    private int[] probes;
+
+    private IntSet intSet;
+
+    private BitSet bitSet;
+
+    private HashSet<Integer> hashSet;
+
+    @Setup
+    public void setup() {
+        var random = new Random(0);
+        values = IntStream.range(0, universe).filter(_ -> random.nextDouble() < density).toArray();
+        probes = random.ints(PROBES, 0, universe).toArray();
+        intSet = new IntSet();
+        bitSet = new BitSet();
+        hashSet = new HashSet<>();
+        for (var value : values) {
+            intSet.add(value);
+            bitSet.set(value);
+            hashSet.add(value);
+        }
+    }
+
+    @Benchmark
+    public IntSet addIntSet() {
+        var set = new IntSet();
+        for (var value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    @Benchmark
+    public BitSet addBitSet() {
+        var set = new BitSet();
+        for (var value : values) {
+            set.set(value);
+        }
+        return set;
+    }
+
+    @Benchmark
+    public HashSet<Integer> addHashSet() {
+        var set = new HashSet<Integer>();
+        for (var value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    @Benchmark
+    public int containsIntSet() {
+        var hits = 0;
+        for (var probe : probes) {
+            if (intSet.contains(probe)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int containsBitSet() {
+        var hits = 0;
+        for (var probe : probes) {
+            if (bitSet.get(probe)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int containsHashSet() {
+        var hits = 0;
+        for (var probe : probes) {
+            if (hashSet.contains(probe)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public void iterateIntSet(Blackhole blackhole) {
+        intSet.spliterator().forEachRemaining((int value) -> blackhole.consume(value));
+    }
+
+    @Benchmark
+    public void iterateBitSet(Blackhole blackhole) {
+        for (var value = bitSet.nextSetBit(0); value >= 0; value = bitSet.nextSetBit(value + 1)) {
+            blackhole.consume(value);
+        }
+    }
+
+    @Benchmark
+    public void iterateHashSet(Blackhole blackhole) {
+        for (var value : hashSet) {
+            blackhole.consume(value.intValue());
+        }
+    }
+
+    @Benchmark
+    public long streamIntSet() {
+        return intSet.stream().asLongStream().sum();
+    }
+
+    @Benchmark
+    public long streamBitSet() {
+        return bitSet.stream().asLongStream().sum();
+    }
+
+    @Benchmark
+    public long streamHashSet() {
+        return hashSet.stream().mapToLong(Integer::longValue).sum();
+    }
+
+}
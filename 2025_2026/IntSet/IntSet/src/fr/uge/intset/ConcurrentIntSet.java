@@ -0,0 +1,207 @@
+package fr.uge.intset;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+public final class ConcurrentIntSet {
+
+    private static final int CHUNK_SHIFT = 16;
+
+    private static final int PAGE_SHIFT = 7;
+
+    private static final int PAGES = 1 << PAGE_SHIFT;
+
+    private static final int CHUNKS = 1 << (31 - CHUNK_SHIFT);
+
+    private static final int CHUNK_WORDS = (1 << CHUNK_SHIFT) >> 5;
+
+    private static final VarHandle DIRECTORY = MethodHandles.arrayElementVarHandle(int[][][].class);
+
+    private static final VarHandle CHUNK = MethodHandles.arrayElementVarHandle(int[][].class);
+
+    private static final VarHandle WORD = MethodHandles.arrayElementVarHandle(int[].class);
+
+    // Fixed radix tree (directory -> page -> chunk words) so that it never has to be reallocated
+    private final int[][][] directory;
+
+    public ConcurrentIntSet() {
+        this.directory = new int[CHUNKS >> PAGE_SHIFT][][];
+        super();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T install(VarHandle handle, Object array, int index, T candidate) {
+        var witness = (T) handle.compareAndExchangeRelease(array, index, (Object) null, (Object) candidate);
+        return witness == null ? candidate : witness;
+    }
+
+    private int[] chunk(int chunkIndex) {
+        var page = (int[][]) DIRECTORY.getAcquire(directory, chunkIndex >> PAGE_SHIFT);
+        if (page == null) {
+            return null;
+        }
+        return (int[]) CHUNK.getAcquire(page, chunkIndex & (PAGES - 1));
+    }
+
+    private int[] chunkOrCreate(int chunkIndex) {
+        var page = (int[][]) DIRECTORY.getAcquire(directory, chunkIndex >> PAGE_SHIFT);
+        if (page == null) {
+            page = install(DIRECTORY, directory, chunkIndex >> PAGE_SHIFT, new int[PAGES][]);
+        }
+        var words = (int[]) CHUNK.getAcquire(page, chunkIndex & (PAGES - 1));
+        if (words == null) {
+            words = install(CHUNK, page, chunkIndex & (PAGES - 1), new int[CHUNK_WORDS]);
+        }
+        return words;
+    }
+
+    private static void checkValue(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Value must be positive");
+        }
+    }
+
+    public boolean add(int value) {
+        checkValue(value);
+        var words = chunkOrCreate(value >>> CHUNK_SHIFT);
+        var targetBitMask = 1 << (value & 31);
+        var previous = (int) WORD.getAndBitwiseOr(words, (value >> 5) & (CHUNK_WORDS - 1), targetBitMask);
+        return (previous & targetBitMask) == 0;
+    }
+
+    public boolean remove(int value) {
+        checkValue(value);
+        var words = chunk(value >>> CHUNK_SHIFT);
+        if (words == null) {
+            return false;
+        }
+        var targetBitMask = 1 << (value & 31);
+        var previous = (int) WORD.getAndBitwiseAnd(words, (value >> 5) & (CHUNK_WORDS - 1), ~targetBitMask);
+        return (previous & targetBitMask) != 0;
+    }
+
+    public boolean contains(int value) {
+        checkValue(value);
+        var words = chunk(value >>> CHUNK_SHIFT);
+        if (words == null) {
+            return false;
+        }
+        var word = (int) WORD.getAcquire(words, (value >> 5) & (CHUNK_WORDS - 1));
+        return (word & (1 << (value & 31))) != 0;
+    }
+
+    int bitCount() {
+        var totalBits = 0;
+        for (var chunkIndex = 0; chunkIndex < CHUNKS; chunkIndex++) {
+            var words = chunk(chunkIndex);
+            if (words == null) {
+                continue;
+            }
+            for (var i = 0; i < words.length; i++) {
+                totalBits += Integer.bitCount((int) WORD.getAcquire(words, i));
+            }
+        }
+        return totalBits;
+    }
+
+    private Spliterator.OfInt spliterator(int start, int end) {
+        return new Spliterator.OfInt() {
+
+            private int nextChunk = start;
+
+            private int[] words;
+
+            private int base;
+
+            private int wordIndex;
+
+            private int bitpos;
+
+            private boolean moveToNextChunk() {
+                words = null;
+                while (words == null) {
+                    if (nextChunk >= end) {
+                        return false;
+                    }
+                    if (DIRECTORY.getAcquire(directory, nextChunk >> PAGE_SHIFT) == null) {
+                        nextChunk = (nextChunk | (PAGES - 1)) + 1;
+                        continue;
+                    }
+                    words = chunk(nextChunk);
+                    base = nextChunk << CHUNK_SHIFT;
+                    nextChunk++;
+                }
+                wordIndex = -1;
+                return true;
+            }
+
+            @Override
+            public boolean tryAdvance(IntConsumer action) {
+                while (bitpos == 0) {
+                    if ((words == null || wordIndex == CHUNK_WORDS - 1) && !moveToNextChunk()) {
+                        return false;
+                    }
+                    bitpos = (int) WORD.getAcquire(words, ++wordIndex);
+                }
+                int bitIndex = Integer.numberOfTrailingZeros(bitpos);
+                bitpos &= (bitpos - 1);
+                action.accept(base + (wordIndex << 5) + bitIndex);
+                return true;
+            }
+
+            @Override
+            public Spliterator.OfInt trySplit() {
+                var middle = (nextChunk + end) >>> 1;
+                if (words != null || middle == nextChunk) {
+                    return null;
+                }
+                var prefix = spliterator(nextChunk, middle);
+                nextChunk = middle;
+                return prefix;
+            }
+
+            @Override
+            public long estimateSize() {
+                return (long) (end - nextChunk) << CHUNK_SHIFT;
+            }
+
+            @Override
+            public int characteristics() {
+                return ORDERED | DISTINCT | NONNULL | SORTED | CONCURRENT;
+            }
+
+            @Override
+            public Comparator<? super Integer> getComparator() {
+                return null;
+            }
+
+        };
+    }
+
+    public Spliterator.OfInt spliterator() {
+        return spliterator(0, CHUNKS);
+    }
+
+    public IntStream stream() {
+        return StreamSupport.intStream(spliterator(), false);
+    }
+
+    @Override
+    public String toString() {
+        var builder = new StringBuilder("[");
+        IntConsumer action = i -> {
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            builder.append(i);
+        };
+        spliterator().forEachRemaining(action);
+        return builder.append("]").toString();
+    }
+
+}
@@ -0,0 +1,127 @@
+package fr.uge.intset;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class ConcurrentIntSetTest {
+
+  @Test
+  public void testAddContainsRemove() {
+    var set = new ConcurrentIntSet();
+    assertTrue(set.add(42));
+    assertFalse(set.add(42));
+    assertTrue(set.contains(42));
+    assertFalse(set.contains(43));
+    assertTrue(set.remove(42));
+    assertFalse(set.remove(42));
+    assertFalse(set.contains(42));
+  }
+
+  @Test
+  public void testLargeValues() {
+    var set = new ConcurrentIntSet();
+    assertTrue(set.add(Integer.MAX_VALUE));
+    assertTrue(set.add(2_000_000_000));
+    assertTrue(set.contains(Integer.MAX_VALUE));
+    assertFalse(set.contains(0));
+    assertEquals("[2000000000, 2147483647]", set.toString());
+  }
+
+  @Test
+  public void testNegativeValues() {
+    var set = new ConcurrentIntSet();
+    assertThrows(IllegalArgumentException.class, () -> set.add(-1));
+    assertThrows(IllegalArgumentException.class, () -> set.contains(-1));
+    assertThrows(IllegalArgumentException.class, () -> set.remove(-1));
+  }
+
+  @Test
+  public void testStreamIsSorted() {
+    var set = new ConcurrentIntSet();
+    set.add(100_000);
+    set.add(3);
+    set.add(64);
+    set.add(8_000_000);
+    assertArrayEquals(new int[] { 3, 64, 100_000, 8_000_000 }, set.stream().toArray());
+    assertTrue(set.spliterator().hasCharacteristics(Spliterator.CONCURRENT));
+  }
+
+  @Test
+  public void testParallelStream() {
+    var set = new ConcurrentIntSet();
+    for (var i = 0; i < 3_000_000; i += 3) {
+      set.add(i);
+    }
+    assertEquals(1_000_000, set.stream().parallel().count());
+    assertArrayEquals(set.stream().toArray(), set.stream().parallel().toArray());
+    assertEquals(1_000_000, set.bitCount());
+  }
+
+  @Test
+  public void testConcurrentAddsDoNotLoseBits() throws InterruptedException {
+    var set = new ConcurrentIntSet();
+    var added = new AtomicInteger();
+    var threads = new ArrayList<Thread>();
+    for (var t = 0; t < 16; t++) {
+      var offset = t;
+      threads.add(Thread.ofPlatform().start(() -> {
+        for (var i = 0; i < 200_000; i++) {
+          // Threads t and t + 8 add the same values, all threads share the same words
+          if (set.add(i * 8 + offset % 8)) {
+            added.incrementAndGet();
+          }
+        }
+      }));
+    }
+    for (var thread : threads) {
+      thread.join();
+    }
+    assertEquals(1_600_000, added.get());
+    assertEquals(1_600_000, set.bitCount());
+    assertEquals(1_600_000, set.stream().count());
+    for (var i = 0; i < 1_600_000; i++) {
+      assertTrue(set.contains(i));
+    }
+  }
+
+  @Test
+  public void testConcurrentAddsAndRemoves() throws InterruptedException {
+    var set = new ConcurrentIntSet();
+    IntStream.range(0, 1_000_000).forEach(set::add);
+    var failures = new AtomicInteger(); // An assertion thrown by a worker thread would not reach JUnit
+    var threads = List.of(
+        Thread.ofPlatform().start(() -> {
+          for (var i = 0; i < 1_000_000; i += 2) {
+            if (!set.remove(i)) {
+              failures.incrementAndGet();
+            }
+          }
+        }),
+        Thread.ofPlatform().start(() -> {
+          for (var i = 1_000_000; i < 2_000_000; i++) {
+            if (!set.add(i)) {
+              failures.incrementAndGet();
+            }
+          }
+        }));
+    for (var thread : threads) {
+      thread.join();
+    }
+    assertEquals(0, failures.get());
+    assertEquals(1_500_000, set.bitCount());
+    assertFalse(set.contains(0));
+    assertTrue(set.contains(1));
+    assertTrue(set.contains(1_999_999));
+  }
+}
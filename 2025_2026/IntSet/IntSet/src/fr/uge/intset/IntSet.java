@@ -1,13 +1,29 @@
 package fr.uge.intset;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.AbstractSet;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.PrimitiveIterator;
 import java.util.Set;
 import java.util.Spliterator;
-import java.util.Spliterators;
 import java.util.function.IntConsumer;
 import java.util.stream.IntStream;
 import java.util.stream.StreamSupport;
@@ -19,26 +35,1551 @@ public final class IntSet {
 
     private static final int DEFAULT_CAPACITY = 4;
 
-    private int[] bitset;
+    private static final int CHUNK_SHIFT = 16;
+
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final int BITMAP_WORDS = CHUNK_SIZE >> 5;
+
+    private static final int ARRAY_MAX_CARDINALITY = 4096;
+
+    private static final int RANK_BLOCK_WORDS = 16;
+
+    private static final int FORMAT_MAGIC = 0x54455349; // "ISET" once written in little-endian
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int ARRAY_KIND = 0;
+
+    private static final int BITMAP_KIND = 1;
+
+    private static final int RUN_KIND = 2;
+
+    private Container[] containers;
+
+    private int cardinality; // -1 for a mapped set until it is first needed, so that mapping a file does not read it
+
+    private int[] ranks; // ranks[i] is the number of values in the containers before i, built on demand
 
     public IntSet() {
-        this.bitset = new int[DEFAULT_CAPACITY];
+        this.containers = new Container[DEFAULT_CAPACITY];
         super();
     }
 
+    private sealed interface Container permits ArrayContainer, BitmapContainer, RunContainer, MappedContainer {
+
+        int cardinality();
+
+        boolean contains(int low);
+
+        Container add(int low);
+
+        Container remove(int low);
+
+        int nextValue(int low);
+
+        int previousValue(int low);
+
+        int nextAbsentValue(int low);
+
+        Container addRange(int from, int to);
+
+        Container removeRange(int from, int to);
+
+        int rank(int low);
+
+        int select(int rank);
+
+        PrimitiveIterator.OfInt iterator(int base);
+
+        void forEach(int base, IntConsumer action);
+
+        Container copy();
+
+        int[] toWords();
+
+    }
+
+    private enum BitwiseOperation {
+
+        AND(VectorOperators.AND, false, false, true),
+        OR(VectorOperators.OR, true, true, true),
+        AND_NOT(VectorOperators.AND_NOT, true, false, false),
+        XOR(VectorOperators.XOR, true, true, false);
+
+        private final VectorOperators.Binary operator;
+
+        private final boolean keepsLeftOnly;
+
+        private final boolean keepsRightOnly;
+
+        private final boolean keepsBoth;
+
+        BitwiseOperation(VectorOperators.Binary operator, boolean keepsLeftOnly, boolean keepsRightOnly, boolean keepsBoth) {
+            this.operator = operator;
+            this.keepsLeftOnly = keepsLeftOnly;
+            this.keepsRightOnly = keepsRightOnly;
+            this.keepsBoth = keepsBoth;
+        }
+
+    }
+
+    private static final class ArrayContainer implements Container {
+
+        private char[] values;
+
+        private int cardinality;
+
+        private ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        private ArrayContainer(int low) {
+            this(new char[DEFAULT_CAPACITY], 1);
+            values[0] = (char) low;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        private int indexOf(int low) {
+            if (values[cardinality - 1] < low) {
+                return -cardinality - 1;
+            }
+            return Arrays.binarySearch(values, 0, cardinality, (char) low);
+        }
+
+        @Override
+        public boolean contains(int low) {
+            return indexOf(low) >= 0;
+        }
+
+        @Override
+        public Container add(int low) {
+            var position = indexOf(low);
+            if (position >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX_CARDINALITY) {
+                return denseContainerOf(values, cardinality).add(low);
+            }
+            var insertion = -position - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(values.length * 2, ARRAY_MAX_CARDINALITY));
+            }
+            System.arraycopy(values, insertion, values, insertion + 1, cardinality - insertion);
+            values[insertion] = (char) low;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        public Container remove(int low) {
+            var position = indexOf(low);
+            if (position < 0) {
+                return this;
+            }
+            System.arraycopy(values, position + 1, values, position, cardinality - position - 1);
+            cardinality--;
+            return cardinality == 0 ? null : this;
+        }
+
+        @Override
+        public int nextValue(int low) {
+            var position = indexOf(low);
+            if (position >= 0) {
+                return low;
+            }
+            var insertion = -position - 1;
+            return insertion < cardinality ? values[insertion] : -1;
+        }
+
+        @Override
+        public int previousValue(int low) {
+            var position = indexOf(low);
+            if (position >= 0) {
+                return low;
+            }
+            var insertion = -position - 1;
+            return insertion > 0 ? values[insertion - 1] : -1;
+        }
+
+        @Override
+        public int nextAbsentValue(int low) {
+            var position = indexOf(low);
+            if (position < 0) {
+                return low;
+            }
+            while (position + 1 < cardinality && values[position + 1] == values[position] + 1) {
+                position++;
+            }
+            return values[position] + 1;
+        }
+
+        @Override
+        public Container addRange(int from, int to) {
+            var words = toWords();
+            setRange(words, from, to);
+            return new BitmapContainer(words).optimize();
+        }
+
+        @Override
+        public Container removeRange(int from, int to) {
+            var start = rank(from);
+            var end = rank(to);
+            System.arraycopy(values, end, values, start, cardinality - end);
+            cardinality -= end - start;
+            return cardinality == 0 ? null : this;
+        }
+
+        @Override
+        public int rank(int low) {
+            var position = indexOf(low);
+            return position >= 0 ? position : -position - 1;
+        }
+
+        @Override
+        public int select(int rank) {
+            return values[rank];
+        }
+
+        private int countIn(Container other) {
+            var count = 0;
+            for (var i = 0; i < cardinality; i++) {
+                if (other.contains(values[i])) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public void forEach(int base, IntConsumer action) {
+            for (var i = 0; i < cardinality; i++) {
+                action.accept(base + values[i]);
+            }
+        }
+
+        @Override
+        public Container copy() {
+            return new ArrayContainer(values.clone(), cardinality);
+        }
+
+        @Override
+        public int[] toWords() {
+            var words = new int[BITMAP_WORDS];
+            for (var i = 0; i < cardinality; i++) {
+                words[values[i] >> 5] |= 1 << (values[i] & 31);
+            }
+            return words;
+        }
+
+        @Override
+        public PrimitiveIterator.OfInt iterator(int base) {
+            return new PrimitiveIterator.OfInt() {
+
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    return index < cardinality;
+                }
+
+                @Override
+                public int nextInt() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return base + values[index++];
+                }
+
+            };
+        }
+
+    }
+
+    private static final class BitmapContainer implements Container {
+
+        private final int[] words;
+
+        private int cardinality;
+
+        private int[] blockRanks;
+
+        private BitmapContainer(int[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        private BitmapContainer(int[] words) {
+            this(words, bitCount(words));
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public boolean contains(int low) {
+            return (words[low >> 5] & (1 << (low & 31))) != 0;
+        }
+
+        @Override
+        public Container add(int low) {
+            var wordIndex = low >> 5;
+            var targetBitMask = 1 << (low & 31);
+            if ((words[wordIndex] & targetBitMask) != 0) {
+                return this;
+            }
+            words[wordIndex] |= targetBitMask;
+            blockRanks = null;
+            if (++cardinality == CHUNK_SIZE) {
+                return RunContainer.full();
+            }
+            return this;
+        }
+
+        @Override
+        public Container remove(int low) {
+            var wordIndex = low >> 5;
+            var targetBitMask = 1 << (low & 31);
+            if ((words[wordIndex] & targetBitMask) == 0) {
+                return this;
+            }
+            words[wordIndex] &= ~targetBitMask;
+            blockRanks = null;
+            if (--cardinality <= ARRAY_MAX_CARDINALITY) {
+                return toArrayContainer();
+            }
+            return this;
+        }
+
+        @Override
+        public int nextValue(int low) {
+            var wordIndex = low >> 5;
+            var word = words[wordIndex] & (-1 << (low & 31));
+            while (word == 0) {
+                if (++wordIndex == words.length) {
+                    return -1;
+                }
+                word = words[wordIndex];
+            }
+            return (wordIndex << 5) + Integer.numberOfTrailingZeros(word);
+        }
+
+        @Override
+        public int previousValue(int low) {
+            var wordIndex = low >> 5;
+            var word = words[wordIndex] & (-1 >>> (31 - (low & 31)));
+            while (word == 0) {
+                if (--wordIndex < 0) {
+                    return -1;
+                }
+                word = words[wordIndex];
+            }
+            return (wordIndex << 5) + 31 - Integer.numberOfLeadingZeros(word);
+        }
+
+        @Override
+        public Container addRange(int from, int to) {
+            cardinality += to - from - bitCount(words, from, to);
+            setRange(words, from, to);
+            blockRanks = null;
+            return cardinality == CHUNK_SIZE ? RunContainer.full() : optimize();
+        }
+
+        @Override
+        public Container removeRange(int from, int to) {
+            cardinality -= bitCount(words, from, to);
+            clearRange(words, from, to);
+            blockRanks = null;
+            return cardinality == 0 ? null : optimize();
+        }
+
+        private int[] blockRanks() {
+            if (blockRanks == null) {
+                blockRanks = new int[words.length / RANK_BLOCK_WORDS];
+                var rank = 0;
+                for (var block = 0; block < blockRanks.length; block++) {
+                    blockRanks[block] = rank;
+                    for (var i = block * RANK_BLOCK_WORDS; i < (block + 1) * RANK_BLOCK_WORDS; i++) {
+                        rank += Integer.bitCount(words[i]);
+                    }
+                }
+            }
+            return blockRanks;
+        }
+
+        @Override
+        public int rank(int low) {
+            var wordIndex = low >> 5;
+            var rank = blockRanks()[wordIndex / RANK_BLOCK_WORDS];
+            for (var i = wordIndex - wordIndex % RANK_BLOCK_WORDS; i < wordIndex; i++) {
+                rank += Integer.bitCount(words[i]);
+            }
+            return rank + Integer.bitCount(words[wordIndex] & ~(-1 << (low & 31)));
+        }
+
+        @Override
+        public int select(int rank) {
+            var blockRanks = blockRanks();
+            var block = Arrays.binarySearch(blockRanks, rank);
+            if (block < 0) {
+                block = -block - 2;
+            }
+            while (block + 1 < blockRanks.length && blockRanks[block + 1] <= rank) {
+                block++; // Skip empty blocks sharing the same rank
+            }
+            var remaining = rank - blockRanks[block];
+            var wordIndex = block * RANK_BLOCK_WORDS;
+            while (Integer.bitCount(words[wordIndex]) <= remaining) {
+                remaining -= Integer.bitCount(words[wordIndex++]);
+            }
+            var bitpos = words[wordIndex];
+            for (; remaining > 0; remaining--) {
+                bitpos &= (bitpos - 1);
+            }
+            return (wordIndex << 5) + Integer.numberOfTrailingZeros(bitpos);
+        }
+
+        @Override
+        public int nextAbsentValue(int low) {
+            var wordIndex = low >> 5;
+            var word = ~words[wordIndex] & (-1 << (low & 31));
+            while (word == 0) {
+                if (++wordIndex == words.length) {
+                    return CHUNK_SIZE;
+                }
+                word = ~words[wordIndex];
+            }
+            return (wordIndex << 5) + Integer.numberOfTrailingZeros(word);
+        }
+
+        private int runCount() {
+            var runCount = 0;
+            var previous = 0;
+            for (var word : words) {
+                runCount += Integer.bitCount(word & ~((word << 1) | (previous >>> 31)));
+                previous = word;
+            }
+            return runCount;
+        }
+
+        private Container optimize() {
+            if (cardinality <= ARRAY_MAX_CARDINALITY) {
+                return toArrayContainer();
+            }
+            var runCount = runCount();
+            if (!RunContainer.isWorthIt(runCount, cardinality)) {
+                return this;
+            }
+            var runs = new char[2 * runCount];
+            var run = 0;
+            for (var start = nextValue(0); start != -1; run++) {
+                var end = nextAbsentValue(start);
+                runs[2 * run] = (char) start;
+                runs[2 * run + 1] = (char) (end - 1 - start);
+                start = end == CHUNK_SIZE ? -1 : nextValue(end);
+            }
+            return new RunContainer(runs, runCount, cardinality);
+        }
+
+        @Override
+        public void forEach(int base, IntConsumer action) {
+            for (var i = 0; i < words.length; i++) {
+                var bitpos = words[i];
+                while (bitpos != 0) {
+                    action.accept(base + (i << 5) + Integer.numberOfTrailingZeros(bitpos));
+                    bitpos &= (bitpos - 1);
+                }
+            }
+        }
+
+        @Override
+        public Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        public int[] toWords() {
+            return words.clone();
+        }
+
+        private Container toArrayContainer() {
+            var values = new char[cardinality];
+            var nextEmptyIndex = 0;
+            for (var i = 0; i < words.length; i++) {
+                var bitpos = words[i];
+                while (bitpos != 0) {
+                    values[nextEmptyIndex++] = (char) ((i << 5) + Integer.numberOfTrailingZeros(bitpos));
+                    bitpos &= (bitpos - 1);
+                }
+            }
+            return new ArrayContainer(values, cardinality);
+        }
+
+        @Override
+        public PrimitiveIterator.OfInt iterator(int base) {
+            return new PrimitiveIterator.OfInt() {
+
+                private int index = -1;
+
+                private int bitpos;
+
+                @Override
+                public boolean hasNext() {
+                    while (bitpos == 0 && index + 1 < words.length) {
+                        bitpos = words[++index];
+                    }
+                    return bitpos != 0;
+                }
+
+                @Override
+                public int nextInt() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    int bitIndex = Integer.numberOfTrailingZeros(bitpos);
+                    bitpos &= (bitpos - 1); // Turn off the rightmost bit (S/O Brian Kernighan)
+                    return base + (index << 5) + bitIndex;
+                }
+
+            };
+        }
+
+    }
+
+    private static final class RunContainer implements Container {
+
+        private char[] runs; // Pairs of (start, length - 1)
+
+        private int runCount;
+
+        private int cardinality;
+
+        private int[] runRanks;
+
+        private RunContainer(char[] runs, int runCount, int cardinality) {
+            this.runs = runs;
+            this.runCount = runCount;
+            this.cardinality = cardinality;
+        }
+
+        private static boolean isWorthIt(int runCount, int cardinality) {
+            return 2 * runCount < Math.min(cardinality, ARRAY_MAX_CARDINALITY);
+        }
+
+        private static RunContainer full() {
+            return new RunContainer(new char[] { 0, CHUNK_MASK }, 1, CHUNK_SIZE);
+        }
+
+        private static Container range(int from, int to) {
+            return new RunContainer(new char[] { (char) from, (char) (to - 1 - from) }, 1, to - from).optimize();
+        }
+
+        private static RunContainer of(char[] values, int cardinality, int runCount) {
+            var runs = new char[runCount * 2];
+            var run = 0;
+            runs[0] = values[0];
+            for (var i = 1; i < cardinality; i++) {
+                if (values[i] != values[i - 1] + 1) {
+                    runs[2 * run + 1] = (char) (values[i - 1] - runs[2 * run]);
+                    runs[2 * ++run] = values[i];
+                }
+            }
+            runs[2 * run + 1] = (char) (values[cardinality - 1] - runs[2 * run]);
+            return new RunContainer(runs, runCount, cardinality);
+        }
+
+        private int start(int run) {
+            return runs[run << 1];
+        }
+
+        private int end(int run) {
+            return runs[run << 1] + runs[(run << 1) + 1];
+        }
+
+        private int runIndexOf(int low) {
+            if (start(runCount - 1) <= low) {
+                return runCount - 1;
+            }
+            var lowIndex = 0;
+            var highIndex = runCount - 2;
+            while (lowIndex <= highIndex) {
+                var middle = (lowIndex + highIndex) >>> 1;
+                if (start(middle) <= low) {
+                    lowIndex = middle + 1;
+                } else {
+                    highIndex = middle - 1;
+                }
+            }
+            return highIndex;
+        }
+
+        private void insertRun(int run, int start, int lengthMinusOne) {
+            if (2 * runCount == runs.length) {
+                runs = Arrays.copyOf(runs, runs.length * 2);
+            }
+            System.arraycopy(runs, 2 * run, runs, 2 * run + 2, 2 * (runCount - run));
+            runs[2 * run] = (char) start;
+            runs[2 * run + 1] = (char) lengthMinusOne;
+            runCount++;
+        }
+
+        private void removeRun(int run) {
+            System.arraycopy(runs, 2 * run + 2, runs, 2 * run, 2 * (runCount - run - 1));
+            runCount--;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public boolean contains(int low) {
+            var run = runIndexOf(low);
+            return run >= 0 && low <= end(run);
+        }
+
+        @Override
+        public Container add(int low) {
+            var run = runIndexOf(low);
+            if (run >= 0 && low <= end(run)) {
+                return this;
+            }
+            runRanks = null;
+            cardinality++;
+            var mergesWithNext = run + 1 < runCount && start(run + 1) == low + 1;
+            if (run >= 0 && low == end(run) + 1) {
+                if (mergesWithNext) {
+                    runs[2 * run + 1] = (char) (end(run + 1) - start(run));
+                    removeRun(run + 1);
+                } else {
+                    runs[2 * run + 1]++;
+                }
+                return this;
+            }
+            if (mergesWithNext) {
+                runs[2 * run + 2]--;
+                runs[2 * run + 3]++;
+                return this;
+            }
+            insertRun(run + 1, low, 0);
+            return optimize();
+        }
+
+        @Override
+        public Container remove(int low) {
+            var run = runIndexOf(low);
+            if (run < 0 || low > end(run)) {
+                return this;
+            }
+            runRanks = null;
+            if (--cardinality == 0) {
+                return null;
+            }
+            var start = start(run);
+            var end = end(run);
+            if (start == end) {
+                removeRun(run);
+            } else if (low == start) {
+                runs[2 * run]++;
+                runs[2 * run + 1]--;
+            } else if (low == end) {
+                runs[2 * run + 1]--;
+            } else {
+                runs[2 * run + 1] = (char) (low - 1 - start);
+                insertRun(run + 1, low + 1, end - low - 1);
+            }
+            return optimize();
+        }
+
+        @Override
+        public int nextValue(int low) {
+            var run = runIndexOf(low);
+            if (run >= 0 && low <= end(run)) {
+                return low;
+            }
+            return run + 1 < runCount ? start(run + 1) : -1;
+        }
+
+        @Override
+        public int previousValue(int low) {
+            var run = runIndexOf(low);
+            return run < 0 ? -1 : Math.min(low, end(run));
+        }
+
+        @Override
+        public int nextAbsentValue(int low) {
+            var run = runIndexOf(low);
+            return run >= 0 && low <= end(run) ? end(run) + 1 : low;
+        }
+
+        @Override
+        public Container addRange(int from, int to) {
+            runRanks = null;
+            var first = runIndexOf(from - 1);
+            if (first < 0 || end(first) < from - 1) {
+                first++;
+            }
+            var last = runIndexOf(to);
+            if (last < first) {
+                insertRun(first, from, to - 1 - from);
+                cardinality += to - from;
+                return optimize();
+            }
+            var start = Math.min(from, start(first));
+            var end = Math.max(to - 1, end(last));
+            for (var run = first; run <= last; run++) {
+                cardinality -= end(run) - start(run) + 1;
+            }
+            cardinality += end - start + 1;
+            runs[2 * first] = (char) start;
+            runs[2 * first + 1] = (char) (end - start);
+            System.arraycopy(runs, 2 * last + 2, runs, 2 * first + 2, 2 * (runCount - last - 1));
+            runCount -= last - first;
+            return optimize();
+        }
+
+        @Override
+        public Container removeRange(int from, int to) {
+            var remainingRuns = new char[2 * runCount + 2];
+            var remainingRunCount = 0;
+            var remainingCardinality = 0;
+            for (var run = 0; run < runCount; run++) {
+                var start = start(run);
+                var end = end(run);
+                if (end < from || start >= to) {
+                    remainingRuns[2 * remainingRunCount] = (char) start;
+                    remainingRuns[2 * remainingRunCount++ + 1] = (char) (end - start);
+                    remainingCardinality += end - start + 1;
+                    continue;
+                }
+                if (start < from) {
+                    remainingRuns[2 * remainingRunCount] = (char) start;
+                    remainingRuns[2 * remainingRunCount++ + 1] = (char) (from - 1 - start);
+                    remainingCardinality += from - start;
+                }
+                if (end >= to) {
+                    remainingRuns[2 * remainingRunCount] = (char) to;
+                    remainingRuns[2 * remainingRunCount++ + 1] = (char) (end - to);
+                    remainingCardinality += end - to + 1;
+                }
+            }
+            if (remainingCardinality == 0) {
+                return null;
+            }
+            runs = remainingRuns;
+            runCount = remainingRunCount;
+            cardinality = remainingCardinality;
+            runRanks = null;
+            return optimize();
+        }
+
+        private int[] runRanks() {
+            if (runRanks == null) {
+                runRanks = new int[runCount];
+                var rank = 0;
+                for (var run = 0; run < runCount; run++) {
+                    runRanks[run] = rank;
+                    rank += end(run) - start(run) + 1;
+                }
+            }
+            return runRanks;
+        }
+
+        @Override
+        public int rank(int low) {
+            var run = runIndexOf(low);
+            if (run < 0) {
+                return 0;
+            }
+            return runRanks()[run] + Math.min(low, end(run) + 1) - start(run);
+        }
+
+        @Override
+        public int select(int rank) {
+            var run = Arrays.binarySearch(runRanks(), rank);
+            if (run < 0) {
+                run = -run - 2;
+            }
+            return start(run) + rank - runRanks[run];
+        }
+
+        private Container optimize() {
+            if (isWorthIt(runCount, cardinality)) {
+                return this;
+            }
+            if (cardinality <= ARRAY_MAX_CARDINALITY) {
+                var values = new char[cardinality];
+                var nextEmptyIndex = 0;
+                for (var run = 0; run < runCount; run++) {
+                    for (var value = start(run); value <= end(run); value++) {
+                        values[nextEmptyIndex++] = (char) value;
+                    }
+                }
+                return new ArrayContainer(values, cardinality);
+            }
+            return new BitmapContainer(toWords(), cardinality);
+        }
+
+        private int countIn(int[] words) {
+            var count = 0;
+            for (var run = 0; run < runCount; run++) {
+                count += bitCount(words, start(run), end(run) + 1);
+            }
+            return count;
+        }
+
+        private int countIn(RunContainer other) {
+            var count = 0;
+            var run = 0;
+            var otherRun = 0;
+            while (run < runCount && otherRun < other.runCount) {
+                var start = Math.max(start(run), other.start(otherRun));
+                var end = Math.min(end(run), other.end(otherRun));
+                if (start <= end) {
+                    count += end - start + 1;
+                }
+                if (end(run) < other.end(otherRun)) {
+                    run++;
+                } else {
+                    otherRun++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public void forEach(int base, IntConsumer action) {
+            for (var run = 0; run < runCount; run++) {
+                for (var low = start(run); low <= end(run); low++) { // base + low could wrap around past Integer.MAX_VALUE
+                    action.accept(base + low);
+                }
+            }
+        }
+
+        @Override
+        public Container copy() {
+            return new RunContainer(runs.clone(), runCount, cardinality);
+        }
+
+        @Override
+        public int[] toWords() {
+            var words = new int[BITMAP_WORDS];
+            for (var run = 0; run < runCount; run++) {
+                setRange(words, start(run), end(run) + 1);
+            }
+            return words;
+        }
+
+        @Override
+        public PrimitiveIterator.OfInt iterator(int base) {
+            return new PrimitiveIterator.OfInt() {
+
+                private int run;
+
+                private int offset;
+
+                @Override
+                public boolean hasNext() {
+                    return run < runCount;
+                }
+
+                @Override
+                public int nextInt() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    var value = start(run) + offset;
+                    if (value == end(run)) {
+                        run++;
+                        offset = 0;
+                    } else {
+                        offset++;
+                    }
+                    return base + value;
+                }
+
+            };
+        }
+
+    }
+
+    private static final class MappedContainer implements Container {
+
+        private static final ValueLayout.OfInt WORD = ValueLayout.JAVA_INT.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+        private final MemorySegment segment;
+
+        private final int wordCount;
+
+        private int cardinality = -1; // Computed on first use so that mapping a file does not read it
+
+        private MappedContainer(MemorySegment segment) {
+            this.segment = segment;
+            this.wordCount = (int) (segment.byteSize() / Integer.BYTES);
+        }
+
+        private int word(int wordIndex) {
+            return segment.getAtIndex(WORD, wordIndex);
+        }
+
+        @Override
+        public int cardinality() {
+            if (cardinality == -1) {
+                var species = IntVector.SPECIES_PREFERRED;
+                int upperBound = species.loopBound(wordCount);
+                var sumVector = IntVector.zero(species);
+                int i = 0;
+                for (; i < upperBound; i += species.length()) {
+                    var vector = IntVector.fromMemorySegment(species, segment, (long) i * Integer.BYTES, ByteOrder.LITTLE_ENDIAN);
+                    sumVector = sumVector.add(vector.lanewise(VectorOperators.BIT_COUNT));
+                }
+                int totalBits = sumVector.reduceLanes(VectorOperators.ADD);
+                for (; i < wordCount; i++) {
+                    totalBits += Integer.bitCount(word(i));
+                }
+                cardinality = totalBits;
+            }
+            return cardinality;
+        }
+
+        @Override
+        public boolean contains(int low) {
+            var wordIndex = low >> 5;
+            return wordIndex < wordCount && (word(wordIndex) & (1 << (low & 31))) != 0;
+        }
+
+        @Override
+        public Container add(int low) {
+            var wordIndex = low >> 5;
+            if (wordIndex >= wordCount) {
+                throw new IllegalArgumentException("Value exceeds the mapped capacity");
+            }
+            var word = word(wordIndex);
+            var targetBitMask = 1 << (low & 31);
+            if ((word & targetBitMask) == 0) {
+                segment.setAtIndex(WORD, wordIndex, word | targetBitMask);
+                if (cardinality != -1) {
+                    cardinality++;
+                }
+            }
+            return this;
+        }
+
+        @Override
+        public Container remove(int low) {
+            var wordIndex = low >> 5;
+            if (wordIndex >= wordCount) {
+                return this;
+            }
+            var word = word(wordIndex);
+            var targetBitMask = 1 << (low & 31);
+            if ((word & targetBitMask) != 0) {
+                segment.setAtIndex(WORD, wordIndex, word & ~targetBitMask);
+                if (cardinality != -1) {
+                    cardinality--;
+                }
+            }
+            return this;
+        }
+
+        private void store(Container container) {
+            var words = container == null ? new int[BITMAP_WORDS] : container.toWords();
+            for (var i = wordCount; i < words.length; i++) {
+                if (words[i] != 0) {
+                    throw new IllegalArgumentException("Value exceeds the mapped capacity");
+                }
+            }
+            MemorySegment.copy(words, 0, segment, WORD, 0, wordCount);
+            cardinality = container == null ? 0 : container.cardinality();
+        }
+
+        @Override
+        public int nextValue(int low) {
+            var wordIndex = low >> 5;
+            if (wordIndex >= wordCount) {
+                return -1;
+            }
+            var word = word(wordIndex) & (-1 << (low & 31));
+            while (word == 0) {
+                if (++wordIndex == wordCount) {
+                    return -1;
+                }
+                word = word(wordIndex);
+            }
+            return (wordIndex << 5) + Integer.numberOfTrailingZeros(word);
+        }
+
+        @Override
+        public int previousValue(int low) {
+            var wordIndex = low >> 5;
+            var word = wordIndex < wordCount ? word(wordIndex) & (-1 >>> (31 - (low & 31))) : 0;
+            wordIndex = Math.min(wordIndex, wordCount);
+            while (word == 0) {
+                if (--wordIndex < 0) {
+                    return -1;
+                }
+                word = word(wordIndex);
+            }
+            return (wordIndex << 5) + 31 - Integer.numberOfLeadingZeros(word);
+        }
+
+        @Override
+        public int nextAbsentValue(int low) {
+            var wordIndex = low >> 5;
+            if (wordIndex >= wordCount) {
+                return low;
+            }
+            var word = ~word(wordIndex) & (-1 << (low & 31));
+            while (word == 0) {
+                if (++wordIndex == wordCount) {
+                    return wordIndex << 5;
+                }
+                word = ~word(wordIndex);
+            }
+            return (wordIndex << 5) + Integer.numberOfTrailingZeros(word);
+        }
+
+        private Container storeWords(int[] words) {
+            MemorySegment.copy(words, 0, segment, WORD, 0, wordCount);
+            cardinality = -1;
+            return this;
+        }
+
+        @Override
+        public Container addRange(int from, int to) {
+            if ((to - 1) >> 5 >= wordCount) {
+                throw new IllegalArgumentException("Value exceeds the mapped capacity");
+            }
+            var words = toWords();
+            setRange(words, from, to);
+            return storeWords(words);
+        }
+
+        @Override
+        public Container removeRange(int from, int to) {
+            var words = toWords();
+            clearRange(words, from, to);
+            return storeWords(words);
+        }
+
+        @Override
+        public int rank(int low) {
+            var wordIndex = Math.min(low >> 5, wordCount);
+            var rank = 0;
+            for (var i = 0; i < wordIndex; i++) {
+                rank += Integer.bitCount(word(i));
+            }
+            if (wordIndex < wordCount) {
+                rank += Integer.bitCount(word(wordIndex) & ~(-1 << (low & 31)));
+            }
+            return rank;
+        }
+
+        @Override
+        public int select(int rank) {
+            var remaining = rank;
+            var wordIndex = 0;
+            while (Integer.bitCount(word(wordIndex)) <= remaining) {
+                remaining -= Integer.bitCount(word(wordIndex++));
+            }
+            var bitpos = word(wordIndex);
+            for (; remaining > 0; remaining--) {
+                bitpos &= (bitpos - 1);
+            }
+            return (wordIndex << 5) + Integer.numberOfTrailingZeros(bitpos);
+        }
+
+        @Override
+        public PrimitiveIterator.OfInt iterator(int base) {
+            return new PrimitiveIterator.OfInt() {
+
+                private int index = -1;
+
+                private int bitpos;
+
+                @Override
+                public boolean hasNext() {
+                    while (bitpos == 0 && index + 1 < wordCount) {
+                        bitpos = word(++index);
+                    }
+                    return bitpos != 0;
+                }
+
+                @Override
+                public int nextInt() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    int bitIndex = Integer.numberOfTrailingZeros(bitpos);
+                    bitpos &= (bitpos - 1);
+                    return base + (index << 5) + bitIndex;
+                }
+
+            };
+        }
+
+        @Override
+        public void forEach(int base, IntConsumer action) {
+            for (var i = 0; i < wordCount; i++) {
+                var bitpos = word(i);
+                while (bitpos != 0) {
+                    action.accept(base + (i << 5) + Integer.numberOfTrailingZeros(bitpos));
+                    bitpos &= (bitpos - 1);
+                }
+            }
+        }
+
+        @Override
+        public Container copy() {
+            if (cardinality() == 0) {
+                return null;
+            }
+            return new BitmapContainer(toWords(), cardinality).optimize();
+        }
+
+        @Override
+        public int[] toWords() {
+            var words = new int[BITMAP_WORDS];
+            MemorySegment.copy(segment, WORD, 0, words, 0, wordCount);
+            return words;
+        }
+
+    }
+
+    private static Container denseContainerOf(char[] values, int cardinality) {
+        var runCount = 1;
+        for (var i = 1; i < cardinality; i++) {
+            if (values[i] != values[i - 1] + 1) {
+                runCount++;
+            }
+        }
+        if (RunContainer.isWorthIt(runCount, cardinality)) {
+            return RunContainer.of(values, cardinality, runCount);
+        }
+        var words = new int[BITMAP_WORDS];
+        for (var i = 0; i < cardinality; i++) {
+            words[values[i] >> 5] |= 1 << (values[i] & 31);
+        }
+        return new BitmapContainer(words, cardinality);
+    }
+
+    private static Container merge(ArrayContainer left, ArrayContainer right, BitwiseOperation operation) {
+        var values = new char[left.cardinality + right.cardinality];
+        var cardinality = 0;
+        var i = 0;
+        var j = 0;
+        while (i < left.cardinality && j < right.cardinality) {
+            var leftValue = left.values[i];
+            var rightValue = right.values[j];
+            if (leftValue < rightValue) {
+                if (operation.keepsLeftOnly) {
+                    values[cardinality++] = leftValue;
+                }
+                i++;
+            } else if (leftValue > rightValue) {
+                if (operation.keepsRightOnly) {
+                    values[cardinality++] = rightValue;
+                }
+                j++;
+            } else {
+                if (operation.keepsBoth) {
+                    values[cardinality++] = leftValue;
+                }
+                i++;
+                j++;
+            }
+        }
+        if (operation.keepsLeftOnly) {
+            System.arraycopy(left.values, i, values, cardinality, left.cardinality - i);
+            cardinality += left.cardinality - i;
+        }
+        if (operation.keepsRightOnly) {
+            System.arraycopy(right.values, j, values, cardinality, right.cardinality - j);
+            cardinality += right.cardinality - j;
+        }
+        if (cardinality == 0) {
+            return null;
+        }
+        if (cardinality <= ARRAY_MAX_CARDINALITY) {
+            return new ArrayContainer(values, cardinality);
+        }
+        return denseContainerOf(values, cardinality);
+    }
+
+    private static Container combine(Container left, Container right, BitwiseOperation operation) {
+        if (left instanceof ArrayContainer leftArray && right instanceof ArrayContainer rightArray) {
+            return merge(leftArray, rightArray, operation);
+        }
+        var words = left instanceof BitmapContainer bitmap ? bitmap.words : left.toWords();
+        var otherWords = right instanceof BitmapContainer bitmap ? bitmap.words : right.toWords();
+        lanewise(words, otherWords, operation.operator);
+        var bitmap = new BitmapContainer(words);
+        return bitmap.cardinality == 0 ? null : bitmap.optimize();
+    }
+
+    private static void lanewise(int[] words, int[] otherWords, VectorOperators.Binary operator) {
+        var species = IntVector.SPECIES_PREFERRED;
+        int upperBound = species.loopBound(words.length);
+        int i = 0;
+        for (; i < upperBound; i += species.length()) {
+            var vector = IntVector.fromArray(species, words, i);
+            var otherVector = IntVector.fromArray(species, otherWords, i);
+            vector.lanewise(operator, otherVector).intoArray(words, i);
+        }
+        if (i < words.length) {
+            var mask = species.indexInRange(i, words.length);
+            var vector = IntVector.fromArray(species, words, i, mask);
+            var otherVector = IntVector.fromArray(species, otherWords, i, mask);
+            vector.lanewise(operator, otherVector).intoArray(words, i, mask);
+        }
+    }
+
+    private static int andCardinality(Container left, Container right) {
+        return switch (left) {
+            case ArrayContainer array -> array.countIn(right);
+            case BitmapContainer bitmap -> switch (right) {
+                case ArrayContainer array -> array.countIn(bitmap);
+                case BitmapContainer other -> andCardinality(bitmap.words, other.words);
+                case RunContainer run -> run.countIn(bitmap.words);
+                case MappedContainer mapped -> andCardinality(bitmap.words, mapped.toWords());
+            };
+            case RunContainer run -> switch (right) {
+                case ArrayContainer array -> array.countIn(run);
+                case BitmapContainer bitmap -> run.countIn(bitmap.words);
+                case RunContainer other -> run.countIn(other);
+                case MappedContainer mapped -> run.countIn(mapped.toWords());
+            };
+            case MappedContainer mapped -> switch (right) {
+                case ArrayContainer array -> array.countIn(mapped);
+                case RunContainer run -> run.countIn(mapped.toWords());
+                default -> andCardinality(mapped.toWords(), right.toWords());
+            };
+        };
+    }
+
+    private static int andCardinality(int[] words, int[] otherWords) {
+        var species = IntVector.SPECIES_PREFERRED;
+        int upperBound = species.loopBound(words.length);
+        var sumVector = IntVector.zero(species);
+        int i = 0;
+        for (; i < upperBound; i += species.length()) {
+            var vector = IntVector.fromArray(species, words, i);
+            var otherVector = IntVector.fromArray(species, otherWords, i);
+            var counts = vector.and(otherVector).lanewise(VectorOperators.BIT_COUNT);
+            sumVector = sumVector.add(counts);
+        }
+        int totalBits = sumVector.reduceLanes(VectorOperators.ADD);
+        for (; i < words.length; i++) {
+            totalBits += Integer.bitCount(words[i] & otherWords[i]);
+        }
+        return totalBits;
+    }
+
+    private static int bitCount(int[] words, int from, int to) {
+        var firstWord = from >> 5;
+        var lastWord = (to - 1) >> 5;
+        var firstMask = -1 << (from & 31);
+        var lastMask = -1 >>> (-to & 31);
+        if (firstWord == lastWord) {
+            return Integer.bitCount(words[firstWord] & firstMask & lastMask);
+        }
+        var totalBits = Integer.bitCount(words[firstWord] & firstMask) + Integer.bitCount(words[lastWord] & lastMask);
+        for (var i = firstWord + 1; i < lastWord; i++) {
+            totalBits += Integer.bitCount(words[i]);
+        }
+        return totalBits;
+    }
+
+    private static void setRange(int[] words, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        var firstWord = from >> 5;
+        var lastWord = (to - 1) >> 5;
+        var firstMask = -1 << (from & 31);
+        var lastMask = -1 >>> (-to & 31);
+        if (firstWord == lastWord) {
+            words[firstWord] |= firstMask & lastMask;
+            return;
+        }
+        words[firstWord] |= firstMask;
+        Arrays.fill(words, firstWord + 1, lastWord, -1);
+        words[lastWord] |= lastMask;
+    }
+
+    private static void clearRange(int[] words, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        var firstWord = from >> 5;
+        var lastWord = (to - 1) >> 5;
+        var firstMask = -1 << (from & 31);
+        var lastMask = -1 >>> (-to & 31);
+        if (firstWord == lastWord) {
+            words[firstWord] &= ~(firstMask & lastMask);
+            return;
+        }
+        words[firstWord] &= ~firstMask;
+        Arrays.fill(words, firstWord + 1, lastWord, 0);
+        words[lastWord] &= ~lastMask;
+    }
+
+    private static int bitCount(int[] words) {
+        var species = IntVector.SPECIES_PREFERRED;
+        int upperBound = species.loopBound(words.length);
+        var sumVector = IntVector.zero(species);
+        int i = 0;
+        for (; i < upperBound; i += species.length()) {
+            var vector = IntVector.fromArray(species, words, i);
+            var counts = vector.lanewise(VectorOperators.BIT_COUNT);
+            sumVector = sumVector.add(counts);
+        }
+        int totalBits = sumVector.reduceLanes(VectorOperators.ADD);
+        for (; i < words.length; i++) {
+            totalBits += Integer.bitCount(words[i]);
+        }
+        return totalBits;
+    }
+
     boolean get(int index) {
-        Objects.checkIndex(index, bitset.length * 32);
-        return (bitset[index >> 5] & (1 << (index & 31))) != 0;
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds");
+        }
+        return contains(index);
     }
 
     void set(int index) {
-        Objects.checkIndex(index, bitset.length * 32);
-        bitset[index >> 5] |= 1 << (index & 31);
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds");
+        }
+        add(index);
+    }
+
+    public static IntSet map(Path path, long capacityBits) throws IOException {
+        Objects.requireNonNull(path);
+        if (capacityBits <= 0 || capacityBits > 1L << 31) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^31 bits");
+        }
+        var byteSize = ((capacityBits + 31) >> 5) * Integer.BYTES;
+        MemorySegment segment;
+        try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() > byteSize) {
+                throw new IllegalArgumentException("File is larger than the requested capacity");
+            }
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, byteSize, Arena.ofAuto());
+        }
+        var chunkBytes = (long) BITMAP_WORDS * Integer.BYTES;
+        var set = new IntSet();
+        set.containers = new Container[(int) ((byteSize + chunkBytes - 1) / chunkBytes)];
+        for (var i = 0; i < set.containers.length; i++) {
+            var offset = i * chunkBytes;
+            set.containers[i] = new MappedContainer(segment.asSlice(offset, Math.min(chunkBytes, byteSize - offset)));
+        }
+        set.cardinality = -1;
+        return set;
+    }
+
+    private static ByteBuffer encode(int containerIndex, Container container) {
+        return switch (container) {
+            case ArrayContainer array -> {
+                var buffer = ByteBuffer.allocate(3 * Integer.BYTES + array.cardinality * Character.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN)
+                        .putInt(containerIndex).putInt(ARRAY_KIND).putInt(array.cardinality);
+                buffer.asCharBuffer().put(array.values, 0, array.cardinality);
+                yield buffer;
+            }
+            case RunContainer run -> {
+                var buffer = ByteBuffer.allocate(3 * Integer.BYTES + 2 * run.runCount * Character.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN)
+                        .putInt(containerIndex).putInt(RUN_KIND).putInt(run.runCount);
+                buffer.asCharBuffer().put(run.runs, 0, 2 * run.runCount);
+                yield buffer;
+            }
+            case BitmapContainer _, MappedContainer _ -> {
+                var words = container instanceof BitmapContainer bitmap ? bitmap.words : container.toWords();
+                var firstWord = 0;
+                while (words[firstWord] == 0) {
+                    firstWord++;
+                }
+                var lastWord = words.length - 1;
+                while (words[lastWord] == 0) {
+                    lastWord--;
+                }
+                var length = lastWord - firstWord + 1;
+                var buffer = ByteBuffer.allocate((4 + length) * Integer.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN)
+                        .putInt(containerIndex).putInt(BITMAP_KIND).putInt(length).putInt(firstWord);
+                buffer.asIntBuffer().put(words, firstWord, length);
+                yield buffer;
+            }
+        };
+    }
+
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        Objects.requireNonNull(channel);
+        var containerCount = 0;
+        for (var container : containers) {
+            if (container != null && container.cardinality() != 0) {
+                containerCount++;
+            }
+        }
+        var header = ByteBuffer.allocate(3 * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(FORMAT_MAGIC).putInt(FORMAT_VERSION).putInt(containerCount);
+        writeFully(channel, header.clear());
+        for (var i = 0; i < containers.length; i++) {
+            var container = containers[i];
+            if (container != null && container.cardinality() != 0) {
+                writeFully(channel, encode(i, container).clear());
+            }
+        }
+    }
+
+    public void writeTo(OutputStream output) throws IOException {
+        Objects.requireNonNull(output);
+        writeTo(Channels.newChannel(output));
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static ByteBuffer readFully(ReadableByteChannel channel, int size) throws IOException {
+        var buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) == -1) {
+                throw new EOFException("Truncated IntSet stream");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static IOException corrupted() {
+        return new IOException("Corrupted IntSet stream");
+    }
+
+    private static Container decode(ReadableByteChannel channel, int kind, int length) throws IOException {
+        switch (kind) {
+            case ARRAY_KIND -> {
+                if (length <= 0 || length > ARRAY_MAX_CARDINALITY) {
+                    throw corrupted();
+                }
+                var values = new char[length];
+                readFully(channel, length * Character.BYTES).asCharBuffer().get(values);
+                for (var i = 1; i < length; i++) {
+                    if (values[i] <= values[i - 1]) {
+                        throw corrupted();
+                    }
+                }
+                return new ArrayContainer(values, length);
+            }
+            case BITMAP_KIND -> {
+                if (length <= 0 || length > BITMAP_WORDS) {
+                    throw corrupted();
+                }
+                var buffer = readFully(channel, (1 + length) * Integer.BYTES);
+                var firstWord = buffer.getInt();
+                if (firstWord < 0 || firstWord > BITMAP_WORDS - length) {
+                    throw corrupted();
+                }
+                var words = new int[BITMAP_WORDS];
+                buffer.asIntBuffer().get(words, firstWord, length);
+                var bitmap = new BitmapContainer(words);
+                if (bitmap.cardinality == 0) {
+                    throw corrupted();
+                }
+                return bitmap.cardinality == CHUNK_SIZE ? RunContainer.full() : bitmap.optimize();
+            }
+            case RUN_KIND -> {
+                if (length <= 0 || length > CHUNK_SIZE / 2) {
+                    throw corrupted();
+                }
+                var runs = new char[2 * length];
+                readFully(channel, runs.length * Character.BYTES).asCharBuffer().get(runs);
+                var cardinality = 0;
+                var previousEnd = -2;
+                for (var run = 0; run < length; run++) {
+                    var start = (int) runs[2 * run];
+                    var end = start + runs[2 * run + 1];
+                    if (start <= previousEnd + 1 || end > CHUNK_MASK) {
+                        throw corrupted();
+                    }
+                    cardinality += end - start + 1;
+                    previousEnd = end;
+                }
+                return new RunContainer(runs, length, cardinality).optimize();
+            }
+            default -> throw new IOException("Unknown IntSet container kind " + kind);
+        }
+    }
+
+    public static IntSet readFrom(ReadableByteChannel channel) throws IOException {
+        Objects.requireNonNull(channel);
+        var header = readFully(channel, 3 * Integer.BYTES);
+        if (header.getInt() != FORMAT_MAGIC) {
+            throw new IOException("Not an IntSet stream");
+        }
+        var version = header.getInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported IntSet format version " + version);
+        }
+        var containerCount = header.getInt();
+        var maxContainerCount = 1 << (31 - CHUNK_SHIFT);
+        if (containerCount < 0 || containerCount > maxContainerCount) {
+            throw corrupted();
+        }
+        var set = new IntSet();
+        var previousIndex = -1;
+        for (var i = 0; i < containerCount; i++) {
+            var containerHeader = readFully(channel, 3 * Integer.BYTES);
+            var containerIndex = containerHeader.getInt();
+            if (containerIndex <= previousIndex || containerIndex >= maxContainerCount) {
+                throw corrupted();
+            }
+            previousIndex = containerIndex;
+            var container = decode(channel, containerHeader.getInt(), containerHeader.getInt());
+            set.growIfNecessary(containerIndex);
+            set.containers[containerIndex] = container;
+            set.cardinality += container.cardinality();
+        }
+        return set;
+    }
+
+    public static IntSet readFrom(InputStream input) throws IOException {
+        Objects.requireNonNull(input);
+        return readFrom(Channels.newChannel(input));
+    }
+
+    private boolean isMapped() {
+        return containers.length != 0 && containers[0] instanceof MappedContainer;
+    }
+
+    private void growIfNecessary(int containerIndex) {
+        if (containerIndex >= containers.length) {
+            if (isMapped()) {
+                throw new IllegalArgumentException("Value exceeds the mapped capacity");
+            }
+            containers = Arrays.copyOf(containers, Math.max(containers.length * 2, containerIndex + 1));
+            ranks = null;
+        }
     }
 
-    private void growIfNecessary(int bitsetIndex) {
-        if (bitsetIndex >= bitset.length) {
-            bitset = Arrays.copyOf(bitset, Math.max(bitset.length * 2, bitsetIndex + 1));
+    private void store(int containerIndex, Container container) {
+        if (containers[containerIndex] instanceof MappedContainer mapped) {
+            mapped.store(container);
+        } else {
+            containers[containerIndex] = container;
         }
     }
 
@@ -46,13 +1587,23 @@ public final class IntSet {
         if (value < 0) {
             throw new IllegalArgumentException("Value must be positive");
         }
-        var bitsetIndex = value >> 5;
-        growIfNecessary(bitsetIndex);
-        var targetBitMask = 1 << (value & 31);
-        if ((bitset[bitsetIndex] & targetBitMask) != 0) {
+        var containerIndex = value >>> CHUNK_SHIFT;
+        growIfNecessary(containerIndex);
+        var container = containers[containerIndex];
+        if (container == null) {
+            containers[containerIndex] = new ArrayContainer(value & CHUNK_MASK);
+            addToCardinality(1);
+            ranks = null;
+            return true;
+        }
+        var containerCardinality = container.cardinality();
+        container = container.add(value & CHUNK_MASK);
+        containers[containerIndex] = container;
+        if (container.cardinality() == containerCardinality) {
             return false;
         }
-        bitset[bitsetIndex] |= targetBitMask;
+        addToCardinality(1);
+        ranks = null;
         return true;
     }
 
@@ -60,51 +1611,356 @@ public final class IntSet {
         if (value < 0) {
             throw new IllegalArgumentException("Value must be positive");
         }
-        var bitsetIndex = value >> 5;
-        return bitsetIndex < bitset.length && (bitset[bitsetIndex] & (1 << (value & 31))) != 0;
+        var containerIndex = value >>> CHUNK_SHIFT;
+        if (containerIndex >= containers.length) {
+            return false;
+        }
+        var container = containers[containerIndex];
+        return container != null && container.contains(value & CHUNK_MASK);
     }
 
-    public Spliterator.OfInt spliterator() {
+    private boolean remove(int value) {
+        var containerIndex = value >>> CHUNK_SHIFT;
+        if (containerIndex >= containers.length || containers[containerIndex] == null) {
+            return false;
+        }
+        var container = containers[containerIndex];
+        var containerCardinality = container.cardinality();
+        container = container.remove(value & CHUNK_MASK);
+        containers[containerIndex] = container;
+        if (container != null && container.cardinality() == containerCardinality) {
+            return false;
+        }
+        addToCardinality(-1);
+        ranks = null;
+        return true;
+    }
+
+    private int nextValue(int from) {
+        if (from < 0) {
+            return -1;
+        }
+        var low = from & CHUNK_MASK;
+        for (var containerIndex = from >>> CHUNK_SHIFT; containerIndex < containers.length; containerIndex++, low = 0) {
+            var container = containers[containerIndex];
+            if (container == null) {
+                continue;
+            }
+            var value = container.nextValue(low);
+            if (value != -1) {
+                return (containerIndex << CHUNK_SHIFT) + value;
+            }
+        }
+        return -1;
+    }
+
+    private static void checkRange(int from, int to) {
+        if (from < 0) {
+            throw new IllegalArgumentException("Value must be positive");
+        }
+        if (from > to) {
+            throw new IllegalArgumentException("Range start " + from + " is greater than range end " + to);
+        }
+    }
+
+    public void addRange(int from, int to) {
+        checkRange(from, to);
+        if (from == to) {
+            return;
+        }
+        var lastContainerIndex = (to - 1) >>> CHUNK_SHIFT;
+        growIfNecessary(lastContainerIndex);
+        ranks = null;
+        // Last chunk first, so that a mapped set running out of capacity is left untouched
+        for (var containerIndex = lastContainerIndex; containerIndex >= from >>> CHUNK_SHIFT; containerIndex--) {
+            var base = containerIndex << CHUNK_SHIFT;
+            var low = Math.max(from - base, 0);
+            var high = Math.min(to - base, CHUNK_SIZE);
+            var container = containers[containerIndex];
+            var containerCardinality = container == null ? 0 : container.cardinality();
+            container = container == null ? RunContainer.range(low, high) : container.addRange(low, high);
+            containers[containerIndex] = container;
+            addToCardinality(container.cardinality() - containerCardinality);
+        }
+    }
+
+    public void removeRange(int from, int to) {
+        checkRange(from, to);
+        if (from == to) {
+            return;
+        }
+        var lastContainerIndex = Math.min((to - 1) >>> CHUNK_SHIFT, containers.length - 1);
+        ranks = null;
+        for (var containerIndex = from >>> CHUNK_SHIFT; containerIndex <= lastContainerIndex; containerIndex++) {
+            var container = containers[containerIndex];
+            if (container == null) {
+                continue;
+            }
+            var base = containerIndex << CHUNK_SHIFT;
+            var containerCardinality = container.cardinality();
+            container = container.removeRange(Math.max(from - base, 0), Math.min(to - base, CHUNK_SIZE));
+            containers[containerIndex] = container;
+            addToCardinality((container == null ? 0 : container.cardinality()) - containerCardinality);
+        }
+    }
+
+    public int nextSetBit(int from) {
+        if (from < 0) {
+            throw new IllegalArgumentException("Value must be positive");
+        }
+        return nextValue(from);
+    }
+
+    public int previousSetBit(int from) {
+        if (from < -1) {
+            throw new IllegalArgumentException("Value must be positive or -1");
+        }
+        var containerIndex = from >> CHUNK_SHIFT;
+        var low = from & CHUNK_MASK;
+        if (containerIndex >= containers.length) {
+            containerIndex = containers.length - 1;
+            low = CHUNK_MASK;
+        }
+        for (; containerIndex >= 0; containerIndex--, low = CHUNK_MASK) {
+            var container = containers[containerIndex];
+            if (container == null) {
+                continue;
+            }
+            var value = container.previousValue(low);
+            if (value != -1) {
+                return (containerIndex << CHUNK_SHIFT) + value;
+            }
+        }
+        return -1;
+    }
+
+    public int nextClearBit(int from) {
+        if (from < 0) {
+            throw new IllegalArgumentException("Value must be positive");
+        }
+        var containerIndex = from >>> CHUNK_SHIFT;
+        var low = from & CHUNK_MASK;
+        while (containerIndex < containers.length) {
+            var container = containers[containerIndex];
+            if (container != null) {
+                low = container.nextAbsentValue(low);
+            }
+            if (low != CHUNK_SIZE) {
+                break;
+            }
+            containerIndex++;
+            low = 0;
+        }
+        var value = (containerIndex << CHUNK_SHIFT) + low;
+        return value < 0 ? -1 : value; // Every non-negative int is in the set
+    }
+
+    private IntSet copy() {
+        var copy = new IntSet();
+        copy.containers = new Container[containers.length];
+        for (var i = 0; i < containers.length; i++) {
+            if (containers[i] != null) {
+                copy.containers[i] = containers[i].copy();
+            }
+        }
+        copy.cardinality = cardinality;
+        return copy;
+    }
+
+    private void apply(IntSet other, BitwiseOperation operation) {
+        Objects.requireNonNull(other);
+        ranks = null;
+        // Every capacity check is done before the first container is modified
+        if (operation.keepsRightOnly) {
+            for (var i = other.containers.length - 1; i >= containers.length; i--) {
+                if (other.containers[i] != null && other.containers[i].cardinality() != 0) {
+                    growIfNecessary(i);
+                    break;
+                }
+            }
+            if (isMapped()) {
+                var lastIndex = containers.length - 1;
+                var last = (MappedContainer) containers[lastIndex];
+                var right = lastIndex < other.containers.length ? other.containers[lastIndex] : null;
+                if (right != null && last.wordCount < BITMAP_WORDS && right.nextValue(last.wordCount << 5) != -1) {
+                    throw new IllegalArgumentException("Value exceeds the mapped capacity");
+                }
+            }
+        }
+        for (var i = 0; i < containers.length; i++) {
+            var left = containers[i];
+            var right = i < other.containers.length ? other.containers[i] : null;
+            var leftCardinality = left == null || cardinality == -1 ? 0 : left.cardinality(); // Read before combine, which may reuse left
+            if (right == null) {
+                if (!operation.keepsLeftOnly) {
+                    store(i, null);
+                }
+            } else if (left == null) {
+                store(i, operation.keepsRightOnly ? right.copy() : null);
+            } else {
+                store(i, combine(left, right, operation));
+            }
+            if (cardinality != -1) {
+                cardinality += (containers[i] == null ? 0 : containers[i].cardinality()) - leftCardinality;
+            }
+        }
+    }
+
+    public void and(IntSet other) {
+        apply(other, BitwiseOperation.AND);
+    }
+
+    public void or(IntSet other) {
+        apply(other, BitwiseOperation.OR);
+    }
+
+    public void andNot(IntSet other) {
+        apply(other, BitwiseOperation.AND_NOT);
+    }
+
+    public void xor(IntSet other) {
+        apply(other, BitwiseOperation.XOR);
+    }
+
+    private static IntSet apply(IntSet first, IntSet second, BitwiseOperation operation) {
+        Objects.requireNonNull(first);
+        Objects.requireNonNull(second);
+        var result = first.copy();
+        result.apply(second, operation);
+        return result;
+    }
+
+    public static IntSet and(IntSet first, IntSet second) {
+        return apply(first, second, BitwiseOperation.AND);
+    }
+
+    public static IntSet or(IntSet first, IntSet second) {
+        return apply(first, second, BitwiseOperation.OR);
+    }
+
+    public static IntSet andNot(IntSet first, IntSet second) {
+        return apply(first, second, BitwiseOperation.AND_NOT);
+    }
+
+    public static IntSet xor(IntSet first, IntSet second) {
+        return apply(first, second, BitwiseOperation.XOR);
+    }
+
+    public int andCardinality(IntSet other) {
+        Objects.requireNonNull(other);
+        var length = Math.min(containers.length, other.containers.length);
+        var totalBits = 0;
+        for (var i = 0; i < length; i++) {
+            var left = containers[i];
+            var right = other.containers[i];
+            if (left != null && right != null) {
+                totalBits += andCardinality(left, right);
+            }
+        }
+        return totalBits;
+    }
+
+    public int orCardinality(IntSet other) {
+        return bitCount() + other.bitCount() - andCardinality(other);
+    }
+
+    public int andNotCardinality(IntSet other) {
+        return bitCount() - andCardinality(other);
+    }
+
+    public int xorCardinality(IntSet other) {
+        return bitCount() + other.bitCount() - 2 * andCardinality(other);
+    }
+
+    private static int cardinality(Container[] containers, int from, int to) {
+        var totalBits = 0;
+        for (var i = from; i < to; i++) {
+            if (containers[i] != null) {
+                totalBits += containers[i].cardinality();
+            }
+        }
+        return totalBits;
+    }
+
+    private static Spliterator.OfInt spliterator(Container[] containers, int start, int end,
+                                                 PrimitiveIterator.OfInt current, long size) {
         return new Spliterator.OfInt() {
 
-            private int index = -1;
+            private int index = start;
 
-            private int bitpos;
+            private int limit = end;
 
-            private void moveToNextNonEmptyCell() {
-                do { index++; } while (index < bitset.length && bitset[index] == 0);
-                if (index < bitset.length) {
-                    bitpos = bitset[index];
+            private PrimitiveIterator.OfInt iterator = current;
+
+            private long remaining = size;
+
+            private boolean moveToNextNonEmptyContainer() {
+                while (index < limit && containers[index] == null) {
+                    index++;
+                }
+                if (index >= limit) {
+                    return false;
                 }
+                iterator = containers[index].iterator(index << CHUNK_SHIFT);
+                index++;
+                return true;
             }
 
             @Override
             public boolean tryAdvance(IntConsumer action) {
-                if (bitpos == 0) {
-                    moveToNextNonEmptyCell();
-                }
-                if (index >= bitset.length) {
-                    return false;
+                while (iterator == null || !iterator.hasNext()) {
+                    if (!moveToNextNonEmptyContainer()) {
+                        return false;
+                    }
                 }
-                int bitIndex = Integer.numberOfTrailingZeros(bitpos);
-                action.accept((index << 5) + bitIndex);
-                bitpos &= (bitpos - 1); // Turn off the rightmost bit (S/O Brian Kernighan)
+                action.accept(iterator.nextInt());
+                remaining--;
                 return true;
             }
 
+            @Override
+            public void forEachRemaining(IntConsumer action) {
+                Objects.requireNonNull(action);
+                if (iterator != null) {
+                    iterator.forEachRemaining(action);
+                    iterator = null;
+                }
+                for (; index < limit; index++) {
+                    if (containers[index] != null) {
+                        containers[index].forEach(index << CHUNK_SHIFT, action);
+                    }
+                }
+                remaining = 0;
+            }
+
             @Override
             public Spliterator.OfInt trySplit() {
-                return null;
+                while (index < limit && containers[index] == null) {
+                    index++;
+                }
+                while (limit > index && containers[limit - 1] == null) {
+                    limit--;
+                }
+                var middle = (index + limit) >>> 1;
+                if (middle == index) {
+                    return null;
+                }
+                var suffixSize = cardinality(containers, middle, limit);
+                var prefix = spliterator(containers, index, middle, iterator, remaining - suffixSize);
+                index = middle;
+                iterator = null;
+                remaining = suffixSize;
+                return prefix;
             }
 
             @Override
             public long estimateSize() {
-                return Long.MAX_VALUE;
+                return remaining;
             }
 
             @Override
             public int characteristics() {
-                return ORDERED | DISTINCT | NONNULL | SORTED;
+                return ORDERED | DISTINCT | NONNULL | SORTED | SIZED | SUBSIZED;
             }
 
             @Override
@@ -115,10 +1971,72 @@ public final class IntSet {
         };
     }
 
+    public Spliterator.OfInt spliterator() {
+        return spliterator(containers, 0, containers.length, null, bitCount());
+    }
+
     public IntStream stream() {
         return StreamSupport.intStream(spliterator(), false);
     }
 
+    public void forEach(IntConsumer action) {
+        Objects.requireNonNull(action);
+        for (var i = 0; i < containers.length; i++) {
+            if (containers[i] != null) {
+                containers[i].forEach(i << CHUNK_SHIFT, action);
+            }
+        }
+    }
+
+    public int[] toIntArray() {
+        var array = new int[bitCount()];
+        forEach(new IntConsumer() {
+
+            private int index;
+
+            @Override
+            public void accept(int value) {
+                array[index++] = value;
+            }
+
+        });
+        return array;
+    }
+
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+
+            private int next = nextValue(0);
+
+            private int lastReturned = -1;
+
+            @Override
+            public boolean hasNext() {
+                return next != -1;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                lastReturned = next;
+                next = nextValue(next + 1);
+                return lastReturned;
+            }
+
+            @Override
+            public void remove() {
+                if (lastReturned == -1) {
+                    throw new IllegalStateException();
+                }
+                IntSet.this.remove(lastReturned);
+                lastReturned = -1;
+            }
+
+        };
+    }
+
     @Override
     public String toString() {
         var builder = new StringBuilder("[");
@@ -133,20 +2051,58 @@ public final class IntSet {
     }
 
     int bitCount() {
-        var species = IntVector.SPECIES_PREFERRED;
-        int upperBound = species.loopBound(bitset.length);
-        var sumVector = IntVector.zero(species);
-        int i = 0;
-        for (; i < upperBound; i += species.length()) {
-            var vector = IntVector.fromArray(species, bitset, i);
-            var counts = vector.lanewise(VectorOperators.BIT_COUNT);
-            sumVector = sumVector.add(counts);
+        if (cardinality == -1) {
+            cardinality = cardinality(containers, 0, containers.length);
         }
-        int totalBits = sumVector.reduceLanes(VectorOperators.ADD);
-        for (; i < bitset.length; i++) {
-            totalBits += Integer.bitCount(bitset[i]);
+        return cardinality;
+    }
+
+    private void addToCardinality(int delta) {
+        if (cardinality != -1) {
+            cardinality += delta;
         }
-        return totalBits;
+    }
+
+    private int[] ranks() {
+        var ranks = this.ranks;
+        if (ranks == null) {
+            ranks = new int[containers.length + 1];
+            for (var i = 0; i < containers.length; i++) {
+                ranks[i + 1] = ranks[i] + (containers[i] == null ? 0 : containers[i].cardinality());
+            }
+            this.ranks = ranks;
+        }
+        return ranks;
+    }
+
+    public int rank(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Value must be positive");
+        }
+        var containerIndex = value >>> CHUNK_SHIFT;
+        if (containerIndex >= containers.length) {
+            return bitCount();
+        }
+        var rank = ranks()[containerIndex];
+        var container = containers[containerIndex];
+        return container == null ? rank : rank + container.rank(value & CHUNK_MASK);
+    }
+
+    public int select(int rank) {
+        Objects.checkIndex(rank, bitCount());
+        var ranks = ranks();
+        // Last container starting at or before rank, it cannot be empty since rank < ranks[containers.length]
+        var low = 0;
+        var high = containers.length - 1;
+        while (low < high) {
+            var middle = (low + high + 1) >>> 1;
+            if (ranks[middle] <= rank) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return (low << CHUNK_SHIFT) + containers[low].select(rank - ranks[low]);
     }
 
     public Set<Integer> asSet() {
@@ -154,34 +2110,7 @@ public final class IntSet {
 
             @Override
             public @NonNull Iterator<Integer> iterator() {
-                return new Iterator<>() {
-
-                    private final Iterator<Integer> iterator = Spliterators.iterator(IntSet.this.spliterator());
-
-                    private int lastReturned = -1;
-
-                    @Override
-                    public boolean hasNext() {
-                        return iterator.hasNext();
-                    }
-
-                    @Override
-                    public @NonNull Integer next() {
-                        lastReturned = iterator.next();
-                        return lastReturned;
-                    }
-
-                    @Override
-                    public void remove() {
-                        if (lastReturned == -1) {
-                            throw new IllegalStateException();
-                        }
-                        var bitsetIndex = lastReturned >> 5;
-                        IntSet.this.bitset[bitsetIndex] &= ~(1 << (lastReturned & 31));
-                        lastReturned = -1;
-                    }
-
-                };
+                return IntSet.this.iterator();
             }
 
             @Override
@@ -189,6 +2118,11 @@ public final class IntSet {
                 return bitCount();
             }
 
+            @Override
+            public boolean isEmpty() {
+                return bitCount() == 0;
+            }
+
             @Override
             public boolean contains(Object value) {
                 return value instanceof Integer integer && integer >= 0 && IntSet.this.contains(integer);
@@ -205,21 +2139,20 @@ public final class IntSet {
                 if (!(value instanceof Integer integer) || integer < 0) {
                     return false;
                 }
-                var bitsetIndex = integer >> 5;
-                if (bitsetIndex >= IntSet.this.bitset.length) {
-                    return false;
-                }
-                var targetBitMask = 1 << (integer & 31);
-                if ((IntSet.this.bitset[bitsetIndex] & targetBitMask) == 0) {
-                    return false;
-                }
-                IntSet.this.bitset[bitsetIndex] &= ~targetBitMask;
-                return true;
+                return IntSet.this.remove(integer);
             }
 
             @Override
             public void clear() {
-                Arrays.fill(IntSet.this.bitset, 0);
+                cardinality = 0;
+                ranks = null;
+                if (!isMapped()) {
+                    IntSet.this.containers = new Container[DEFAULT_CAPACITY];
+                    return;
+                }
+                for (var i = 0; i < IntSet.this.containers.length; i++) {
+                    store(i, null);
+                }
             }
         };
 
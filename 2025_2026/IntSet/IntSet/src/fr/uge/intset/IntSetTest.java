@@ -2,30 +2,48 @@ package fr.uge.intset;
 
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.classfile.ClassFile;
 import java.lang.classfile.Instruction;
 import java.lang.classfile.Opcode;
 import java.lang.classfile.instruction.InvokeInstruction;
 import java.lang.reflect.AccessFlag;
 import java.lang.reflect.Method;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Random;
 import java.util.Set;
 import java.util.Spliterator;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
 
 public final class IntSetTest {
 
@@ -102,8 +120,15 @@ public final class IntSetTest {
           .filter(field -> !field.accessFlags().contains(AccessFlag.STATIC))
           .toList();
 
-      assertEquals(1, fields.size());
-      assertTrue(fields.getFirst().getType().isArray());
+      // The values live in a single container array, next to its cached size (int) and rank prefix (int[])
+      assertEquals(3, fields.size());
+      assertEquals(1, fields.stream()
+          .filter(field -> field.getType().isArray() && !field.getType().getComponentType().isPrimitive())
+          .count());
+      assertEquals(Set.of(int.class, int[].class), fields.stream()
+          .map(field -> field.getType())
+          .filter(type -> type == int.class || type == int[].class)
+          .collect(Collectors.toSet()));
     }
 
     @Test
@@ -977,4 +1002,1090 @@ public final class IntSetTest {
     }
   }
 
+  @Nested
+  public class Containers {
+
+    @Test
+    public void testAddHugeValue() {
+      var set = new IntSet();
+      assertTrue(set.add(2_000_000_000));
+      assertTrue(set.contains(2_000_000_000));
+      assertFalse(set.contains(1_999_999_999));
+      assertEquals("[2000000000]", set.toString());
+    }
+
+    @Test
+    public void testAddMaxValue() {
+      var set = new IntSet();
+      assertTrue(set.add(Integer.MAX_VALUE));
+      assertTrue(set.contains(Integer.MAX_VALUE));
+      assertArrayEquals(new int[]{Integer.MAX_VALUE}, set.stream().toArray());
+      assertEquals(List.of(Integer.MAX_VALUE), List.copyOf(set.asSet()));
+    }
+
+    @Test
+    public void testSparseClusters() {
+      var set = new IntSet();
+      for (var cluster = 0; cluster < 1_000; cluster++) {
+        for (var i = 0; i < 10; i++) {
+          assertTrue(set.add(cluster * 2_000_000 + i));
+        }
+      }
+      assertEquals(10_000, set.bitCount());
+      assertTrue(set.contains(999 * 2_000_000 + 9));
+      assertFalse(set.contains(999 * 2_000_000 + 10));
+    }
+
+    @Test
+    public void testSequentialValuesAcrossChunks() {
+      var set = new IntSet();
+      for (var i = 0; i < 200_000; i++) {
+        assertTrue(set.add(i));
+      }
+      assertEquals(200_000, set.bitCount());
+      assertEquals(199_999L * 200_000 / 2, set.stream().asLongStream().sum());
+      assertFalse(set.add(65_535));
+      assertFalse(set.contains(200_000));
+    }
+
+    @Test
+    public void testDensityChangesKeepContent() {
+      var set = new IntSet();
+      var expected = new TreeSet<Integer>();
+      var random = new Random(0);
+      for (var i = 0; i < 100_000; i++) {
+        var value = random.nextInt(3 * 65_536);
+        assertEquals(expected.add(value), set.add(value));
+      }
+      for (var i = 0; i < 100_000; i++) {
+        var value = random.nextInt(3 * 65_536);
+        assertEquals(expected.remove(value), set.asSet().remove(value));
+      }
+      assertEquals(expected.size(), set.bitCount());
+      assertEquals(List.copyOf(expected), set.stream().boxed().toList());
+      assertEquals(expected, set.asSet());
+    }
+
+    @Test
+    public void testRunsSplitAndMerge() {
+      var set = new IntSet();
+      for (var i = 0; i < 10_000; i++) {
+        set.add(i);
+      }
+      assertTrue(set.asSet().remove(5_000));
+      assertFalse(set.contains(5_000));
+      assertTrue(set.contains(4_999));
+      assertTrue(set.contains(5_001));
+      assertEquals(9_999, set.bitCount());
+      assertTrue(set.add(5_000));
+      assertEquals(10_000, set.bitCount());
+      assertArrayEquals(IntStream.range(0, 10_000).toArray(), set.stream().toArray());
+    }
+
+    @Test
+    public void testFullChunkThenRemoveEverything() {
+      var set = new IntSet();
+      for (var i = 65_535; i >= 0; i--) {
+        set.add(i);
+      }
+      assertEquals(65_536, set.bitCount());
+      var iterator = set.asSet().iterator();
+      var count = 0;
+      while (iterator.hasNext()) {
+        assertEquals(count++, iterator.next());
+        iterator.remove();
+      }
+      assertEquals(65_536, count);
+      assertEquals(0, set.bitCount());
+      assertEquals("[]", set.toString());
+    }
+
+    @Test
+    public void testClearThenAdd() {
+      var set = new IntSet();
+      set.add(1_000_000);
+      set.asSet().clear();
+      assertTrue(set.asSet().isEmpty());
+      assertFalse(set.contains(1_000_000));
+      assertTrue(set.add(3));
+      assertEquals(Set.of(3), set.asSet());
+    }
+  }
+
+  @Nested
+  public class BulkOperations {
+
+    private static IntSet setOf(int... values) {
+      var set = new IntSet();
+      for (var value : values) {
+        set.add(value);
+      }
+      return set;
+    }
+
+    private static IntSet randomSet(Random random, int size, int bound) {
+      var set = new IntSet();
+      for (var i = 0; i < size; i++) {
+        set.add(random.nextInt(bound));
+      }
+      return set;
+    }
+
+    private static IntSet rangeSet(int from, int to) {
+      var set = new IntSet();
+      for (var i = from; i < to; i++) {
+        set.add(i);
+      }
+      return set;
+    }
+
+    private static Set<Integer> expected(IntSet first, IntSet second, String operation) {
+      var left = new TreeSet<>(first.asSet());
+      var right = second.asSet();
+      switch (operation) {
+        case "and" -> left.retainAll(right);
+        case "or" -> left.addAll(right);
+        case "andNot" -> left.removeAll(right);
+        case "xor" -> {
+          var both = new TreeSet<>(left);
+          both.retainAll(right);
+          left.addAll(right);
+          left.removeAll(both);
+        }
+        default -> throw new AssertionError(operation);
+      }
+      return left;
+    }
+
+    private static void checkAllOperations(IntSet first, IntSet second) {
+      var firstContent = List.copyOf(first.asSet());
+      var secondContent = List.copyOf(second.asSet());
+
+      var and = IntSet.and(first, second);
+      var or = IntSet.or(first, second);
+      var andNot = IntSet.andNot(first, second);
+      var xor = IntSet.xor(first, second);
+
+      assertEquals(expected(first, second, "and"), and.asSet());
+      assertEquals(expected(first, second, "or"), or.asSet());
+      assertEquals(expected(first, second, "andNot"), andNot.asSet());
+      assertEquals(expected(first, second, "xor"), xor.asSet());
+
+      assertEquals(and.bitCount(), first.andCardinality(second));
+      assertEquals(or.bitCount(), first.orCardinality(second));
+      assertEquals(andNot.bitCount(), first.andNotCardinality(second));
+      assertEquals(xor.bitCount(), first.xorCardinality(second));
+
+      assertEquals(firstContent, List.copyOf(first.asSet()));
+      assertEquals(secondContent, List.copyOf(second.asSet()));
+    }
+
+    @Test
+    public void testSmallSets() {
+      checkAllOperations(setOf(1, 2, 3, 100_000), setOf(2, 3, 4, 200_000));
+    }
+
+    @Test
+    public void testEmptySets() {
+      checkAllOperations(new IntSet(), setOf(1, 70_000));
+      checkAllOperations(setOf(1, 70_000), new IntSet());
+      checkAllOperations(new IntSet(), new IntSet());
+    }
+
+    @Test
+    public void testDenseAndSparseSets() {
+      var random = new Random(42);
+      checkAllOperations(randomSet(random, 50_000, 200_000), randomSet(random, 3_000, 400_000));
+      checkAllOperations(randomSet(random, 3_000, 400_000), randomSet(random, 50_000, 200_000));
+      checkAllOperations(randomSet(random, 60_000, 200_000), randomSet(random, 60_000, 200_000));
+    }
+
+    @Test
+    public void testRunSets() {
+      var random = new Random(7);
+      checkAllOperations(rangeSet(0, 100_000), rangeSet(50_000, 200_000));
+      checkAllOperations(rangeSet(0, 100_000), randomSet(random, 40_000, 150_000));
+      checkAllOperations(randomSet(random, 2_000, 150_000), rangeSet(10_000, 90_000));
+    }
+
+    @Test
+    public void testInPlaceOperations() {
+      var set = setOf(1, 2, 3);
+      set.or(setOf(3, 4, 1_000_000));
+      assertEquals(Set.of(1, 2, 3, 4, 1_000_000), set.asSet());
+      set.and(setOf(2, 3, 4, 5));
+      assertEquals(Set.of(2, 3, 4), set.asSet());
+      set.andNot(setOf(3));
+      assertEquals(Set.of(2, 4), set.asSet());
+      set.xor(setOf(4, 6));
+      assertEquals(Set.of(2, 6), set.asSet());
+    }
+
+    @Test
+    public void testInPlaceDoesNotShareState() {
+      var set = new IntSet();
+      var other = rangeSet(0, 70_000);
+      set.or(other);
+      other.add(100_000);
+      set.asSet().remove(5);
+      assertTrue(other.contains(5));
+      assertFalse(set.contains(100_000));
+    }
+
+    @Test
+    public void testOperationsWithItself() {
+      var random = new Random(3);
+      var set = randomSet(random, 20_000, 100_000);
+      var content = Set.copyOf(set.asSet());
+      set.or(set);
+      assertEquals(content, set.asSet());
+      set.and(set);
+      assertEquals(content, set.asSet());
+      set.xor(set);
+      assertTrue(set.asSet().isEmpty());
+    }
+
+    @Test
+    public void testFullChunkUnion() {
+      var set = rangeSet(0, 40_000);
+      set.or(rangeSet(40_000, 65_536));
+      assertEquals(65_536, set.bitCount());
+      assertTrue(set.add(65_536));
+    }
+
+    @Test
+    public void testOperationsWithNull() {
+      var set = setOf(1);
+      assertThrows(NullPointerException.class, () -> set.or(null));
+      assertThrows(NullPointerException.class, () -> IntSet.and(null, set));
+      assertThrows(NullPointerException.class, () -> set.andCardinality(null));
+    }
+  }
+
+  @Nested
+  public class ParallelSpliterator {
+
+    @Test
+    public void testSpliteratorIsSized() {
+      var set = new IntSet();
+      for (var i = 0; i < 1_000_000; i += 3) {
+        set.add(i);
+      }
+      var spliterator = set.spliterator();
+      assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED));
+      assertTrue(spliterator.hasCharacteristics(Spliterator.SUBSIZED));
+      assertEquals(333_334, spliterator.estimateSize());
+      assertEquals(333_334, spliterator.getExactSizeIfKnown());
+    }
+
+    @Test
+    public void testSpliteratorSizeDecreases() {
+      var set = new IntSet();
+      set.add(1);
+      set.add(70_000);
+      var spliterator = set.spliterator();
+      assertTrue(spliterator.tryAdvance((int value) -> assertEquals(1, value)));
+      assertEquals(1, spliterator.estimateSize());
+      assertTrue(spliterator.tryAdvance((int value) -> assertEquals(70_000, value)));
+      assertEquals(0, spliterator.estimateSize());
+      assertFalse(spliterator.tryAdvance((int value) -> fail()));
+    }
+
+    @Test
+    public void testTrySplitKeepsOrderAndSizes() {
+      var set = new IntSet();
+      for (var i = 0; i < 1_000_000; i += 7) {
+        set.add(i);
+      }
+      var spliterator = set.spliterator();
+      var first = new ArrayList<Integer>();
+      spliterator.tryAdvance((int value) -> first.add(value));
+      var prefix = spliterator.trySplit();
+      assertNotNull(prefix);
+      assertEquals(set.bitCount() - 1, prefix.estimateSize() + spliterator.estimateSize());
+      var prefixSize = prefix.estimateSize();
+      prefix.forEachRemaining((int value) -> first.add(value));
+      var suffix = new ArrayList<Integer>();
+      spliterator.forEachRemaining((int value) -> suffix.add(value));
+      assertEquals(prefixSize + 1, first.size());
+      assertTrue(first.getLast() < suffix.getFirst());
+      first.addAll(suffix);
+      assertEquals(set.stream().boxed().toList(), first);
+    }
+
+    @Test
+    public void testTrySplitOnSingleChunk() {
+      var set = new IntSet();
+      set.add(5);
+      assertNull(set.spliterator().trySplit());
+    }
+
+    @Test
+    public void testParallelStream() {
+      var set = new IntSet();
+      for (var i = 0; i < 10_000_000; i++) {
+        if (i % 3 != 0) {
+          set.add(i);
+        }
+      }
+      assertEquals(33_333_326_666_667L, set.stream().parallel().asLongStream().sum());
+      assertEquals(6_666_666, set.stream().parallel().count());
+      assertArrayEquals(set.stream().toArray(), set.stream().parallel().toArray());
+    }
+  }
+
+  @Nested
+  public class Cardinality {
+
+    @Test
+    public void testSizeFollowsAddAndRemove() {
+      var intSet = new IntSet();
+      var set = intSet.asSet();
+      for (var i = 0; i < 100_000; i += 2) {
+        intSet.add(i);
+      }
+      assertEquals(50_000, set.size());
+      assertFalse(set.remove(1));
+      assertTrue(set.remove(0));
+      assertEquals(49_999, set.size());
+      assertFalse(intSet.add(2));
+      assertEquals(49_999, set.size());
+    }
+
+    @Test
+    public void testSizeFollowsIteratorRemove() {
+      var intSet = new IntSet();
+      for (var i = 0; i < 100_000; i++) {
+        intSet.add(i);
+      }
+      var iterator = intSet.asSet().iterator();
+      while (iterator.hasNext()) {
+        if (iterator.next() % 10 != 0) {
+          iterator.remove();
+        }
+      }
+      assertEquals(10_000, intSet.asSet().size());
+      assertEquals(10_000, intSet.bitCount());
+    }
+
+    @Test
+    public void testSizeAfterClear() {
+      var intSet = new IntSet();
+      intSet.add(3);
+      intSet.add(3_000_000);
+      var set = intSet.asSet();
+      set.clear();
+      assertEquals(0, set.size());
+      assertTrue(set.isEmpty());
+      intSet.add(7);
+      assertEquals(1, set.size());
+      assertFalse(set.isEmpty());
+    }
+
+    @Test
+    public void testIsEmptyAfterRemovingLastElement() {
+      var intSet = new IntSet();
+      intSet.add(1_000_000);
+      var set = intSet.asSet();
+      assertFalse(set.isEmpty());
+      set.remove(1_000_000);
+      assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void testSizeFollowsRanges() {
+      var intSet = new IntSet();
+      intSet.addRange(10, 200_000);
+      assertEquals(199_990, intSet.asSet().size());
+      intSet.addRange(100, 300_000);
+      assertEquals(299_990, intSet.asSet().size());
+      intSet.removeRange(50_000, 150_000);
+      assertEquals(199_990, intSet.asSet().size());
+      intSet.removeRange(0, 1_000_000);
+      assertTrue(intSet.asSet().isEmpty());
+    }
+
+    @Test
+    public void testSizeFollowsBulkOperations() {
+      var first = new IntSet();
+      var second = new IntSet();
+      for (var i = 0; i < 300_000; i += 2) {
+        first.add(i);
+      }
+      for (var i = 0; i < 300_000; i += 3) {
+        second.add(i);
+      }
+      var or = IntSet.or(first, second);
+      var expected = first.orCardinality(second);
+      first.or(second);
+      assertEquals(200_000, first.asSet().size());
+      assertEquals(expected, or.asSet().size());
+      first.andNot(second);
+      assertEquals(100_000, first.asSet().size());
+      first.xor(second);
+      assertEquals(200_000, first.asSet().size());
+      first.and(second);
+      assertEquals(100_000, first.asSet().size());
+      assertEquals((int) first.stream().count(), first.bitCount());
+    }
+
+    @Test
+    public void testSizeOfReadAndMappedSets(@TempDir Path directory) throws IOException {
+      var intSet = new IntSet();
+      for (var i = 0; i < 200_000; i += 7) {
+        intSet.add(i);
+      }
+      var output = new ByteArrayOutputStream();
+      intSet.writeTo(output);
+      assertEquals(intSet.bitCount(), IntSet.readFrom(new ByteArrayInputStream(output.toByteArray())).asSet().size());
+      var path = directory.resolve("set.bits");
+      var mapped = IntSet.map(path, 1L << 20);
+      mapped.or(intSet);
+      assertEquals(intSet.bitCount(), mapped.asSet().size());
+      var remapped = IntSet.map(path, 1L << 20);
+      assertEquals(intSet.bitCount(), remapped.asSet().size());
+      remapped.add(1);
+      assertEquals(intSet.bitCount() + 1, remapped.bitCount());
+    }
+
+    @Test
+    public void testSizeIsFastOnLargeSet() {
+      var intSet = new IntSet();
+      for (var i = 0; i < 10_000_000; i++) {
+        intSet.add(i * 3);
+      }
+      var set = intSet.asSet();
+      assertTimeoutPreemptively(Duration.ofSeconds(1), () -> {
+        for (var i = 0; i < 100_000; i++) {
+          assertEquals(10_000_000, set.size());
+          assertFalse(set.isEmpty());
+        }
+      });
+    }
+  }
+
+  @Nested
+  public class RankSelect {
+
+    private static void checkRankAndSelect(IntSet set, TreeSet<Integer> expected) {
+      var values = List.copyOf(expected);
+      for (var k = 0; k < values.size(); k++) {
+        assertEquals(values.get(k), set.select(k));
+        assertEquals(k, set.rank(values.get(k)));
+      }
+      for (var value = 0; value < 300_000; value += 97) {
+        assertEquals(expected.headSet(value).size(), set.rank(value));
+      }
+    }
+
+    @Test
+    public void testRankAndSelectOnEveryDensity() {
+      var random = new Random(11);
+      var set = new IntSet();
+      var expected = new TreeSet<Integer>();
+      for (var i = 0; i < 1_000; i++) {
+        var value = random.nextInt(65_536);
+        set.add(value);
+        expected.add(value);
+      }
+      for (var i = 0; i < 30_000; i++) {
+        var value = 65_536 + random.nextInt(65_536);
+        set.add(value);
+        expected.add(value);
+      }
+      for (var value = 140_000; value < 150_000; value++) {
+        set.add(value);
+        expected.add(value);
+      }
+      checkRankAndSelect(set, expected);
+    }
+
+    @Test
+    public void testRankIsInvalidatedOnMutation() {
+      var set = new IntSet();
+      var expected = new TreeSet<Integer>();
+      for (var i = 0; i < 20_000; i += 2) {
+        set.add(i);
+        expected.add(i);
+      }
+      for (var i = 100_000; i < 110_000; i++) {
+        set.add(i);
+        expected.add(i);
+      }
+      checkRankAndSelect(set, expected);
+      for (var i = 1; i < 2_000; i += 2) {
+        set.add(i);
+        expected.add(i);
+      }
+      set.asSet().remove(105_000);
+      expected.remove(105_000);
+      checkRankAndSelect(set, expected);
+    }
+
+    @Test
+    public void testRankBounds() {
+      var set = new IntSet();
+      set.add(10);
+      set.add(1_000_000);
+      assertEquals(0, set.rank(0));
+      assertEquals(0, set.rank(10));
+      assertEquals(1, set.rank(11));
+      assertEquals(2, set.rank(Integer.MAX_VALUE));
+      assertThrows(IllegalArgumentException.class, () -> set.rank(-1));
+    }
+
+    @Test
+    public void testSelectBounds() {
+      var set = new IntSet();
+      set.add(10);
+      set.add(1_000_000);
+      assertEquals(10, set.select(0));
+      assertEquals(1_000_000, set.select(1));
+      assertThrows(IndexOutOfBoundsException.class, () -> set.select(2));
+      assertThrows(IndexOutOfBoundsException.class, () -> set.select(-1));
+      assertThrows(IndexOutOfBoundsException.class, () -> new IntSet().select(0));
+    }
+
+    @Test
+    public void testRankIsInvalidatedByEveryMutation() {
+      var set = new IntSet();
+      var expected = new TreeSet<Integer>();
+      for (var i = 0; i < 300_000; i += 5) {
+        set.add(i);
+        expected.add(i);
+      }
+      checkRankAndSelect(set, expected);
+      set.addRange(70_000, 140_000);
+      IntStream.range(70_000, 140_000).forEach(expected::add);
+      checkRankAndSelect(set, expected);
+      set.removeRange(0, 50_000);
+      expected.headSet(50_000).clear();
+      checkRankAndSelect(set, expected);
+      var other = new IntSet();
+      other.add(3);
+      other.add(5_000_000);
+      set.or(other);
+      expected.addAll(List.of(3, 5_000_000));
+      checkRankAndSelect(set, expected);
+      set.andNot(other);
+      expected.removeAll(List.of(3, 5_000_000));
+      checkRankAndSelect(set, expected);
+      set.add(9_000_000);
+      expected.add(9_000_000);
+      checkRankAndSelect(set, expected);
+      set.asSet().clear();
+      assertEquals(0, set.rank(9_000_001));
+      set.add(42);
+      assertEquals(42, set.select(0));
+      assertEquals(1, set.rank(9_000_001));
+    }
+
+    @Test
+    public void testRankAndSelectAcrossManyChunks() {
+      var set = new IntSet();
+      for (var chunk = 0; chunk < 32_768; chunk++) {
+        set.add((chunk << 16) + chunk % 1_000);
+      }
+      assertTimeoutPreemptively(Duration.ofSeconds(1), () -> {
+        for (var i = 0; i < 1_000_000; i++) {
+          var chunk = i & 32_767;
+          assertEquals(chunk, set.rank(chunk << 16));
+          assertEquals((chunk << 16) + chunk % 1_000, set.select(chunk));
+        }
+      });
+    }
+
+    @Test
+    public void testRankOnLargeSet() {
+      var set = new IntSet();
+      for (var i = 0; i < 10_000_000; i++) {
+        if (i % 3 != 0) {
+          set.add(i);
+        }
+      }
+      assertTimeoutPreemptively(Duration.ofSeconds(1), () -> {
+        for (var i = 0; i < 1_000_000; i++) {
+          var value = i * 10;
+          assertEquals(value - (value + 2) / 3, set.rank(value));
+        }
+      });
+    }
+  }
+
+  @Nested
+  public class Mapped {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testMappedSetPersists() throws IOException {
+      var file = directory.resolve("ids.bits");
+      var set = IntSet.map(file, 1_000_000);
+      assertTrue(set.add(3));
+      assertTrue(set.add(999_999));
+      assertFalse(set.add(3));
+      assertTrue(set.contains(999_999));
+
+      var reopened = IntSet.map(file, 1_000_000);
+      assertEquals("[3, 999999]", reopened.toString());
+      assertEquals(2, reopened.asSet().size());
+      assertEquals(125_000, Files.size(file));
+    }
+
+    @Test
+    public void testMappedSetCountsItsValuesOnFirstUse() throws IOException, ReflectiveOperationException {
+      var file = directory.resolve("lazy.bits");
+      var set = IntSet.map(file, 1_000_000);
+      set.addRange(1_000, 200_000);
+      var reopened = IntSet.map(file, 1_000_000);
+      var cardinality = IntSet.class.getDeclaredField("cardinality");
+      cardinality.setAccessible(true);
+      assertEquals(-1, cardinality.get(reopened));
+      assertTrue(reopened.add(5));
+      assertTrue(reopened.asSet().remove(1_000));
+      reopened.addRange(300_000, 300_010);
+      assertEquals(-1, cardinality.get(reopened));
+      assertEquals(199_010, reopened.bitCount());
+      assertTrue(reopened.add(6));
+      assertEquals(199_011, reopened.asSet().size());
+      assertFalse(reopened.asSet().isEmpty());
+    }
+
+    @Test
+    public void testMappedSetCapacity() throws IOException {
+      var set = IntSet.map(directory.resolve("small.bits"), 100);
+      assertTrue(set.add(127));
+      assertFalse(set.contains(128));
+      assertFalse(set.contains(1_000_000));
+      assertThrows(IllegalArgumentException.class, () -> set.add(128));
+      assertThrows(IllegalArgumentException.class, () -> set.add(1_000_000));
+    }
+
+    @Test
+    public void testMappedSetInvalidArguments() {
+      assertThrows(NullPointerException.class, () -> IntSet.map(null, 10));
+      assertThrows(IllegalArgumentException.class, () -> IntSet.map(directory.resolve("a"), 0));
+      assertThrows(IllegalArgumentException.class, () -> IntSet.map(directory.resolve("b"), (1L << 31) + 1));
+    }
+
+    @Test
+    public void testMappedSetCannotShrink() throws IOException {
+      var file = directory.resolve("shrink.bits");
+      IntSet.map(file, 1_000);
+      assertThrows(IllegalArgumentException.class, () -> IntSet.map(file, 100));
+    }
+
+    @Test
+    public void testMappedSetStreamRemoveAndClear() throws IOException {
+      var file = directory.resolve("stream.bits");
+      var set = IntSet.map(file, 300_000);
+      for (var i = 0; i < 300_000; i += 5) {
+        set.add(i);
+      }
+      assertEquals(60_000, set.stream().count());
+      assertEquals(60_000, set.stream().parallel().count());
+      assertEquals(10, set.select(2));
+      assertEquals(3, set.rank(11));
+      assertTrue(set.asSet().remove(5));
+      assertFalse(set.contains(5));
+      assertEquals(59_999, set.asSet().size());
+      set.asSet().clear();
+      assertTrue(set.asSet().isEmpty());
+      assertTrue(IntSet.map(file, 300_000).asSet().isEmpty());
+    }
+
+    @Test
+    public void testMappedSetBulkOperations() throws IOException {
+      var set = IntSet.map(directory.resolve("bulk.bits"), 200_000);
+      for (var i = 0; i < 200_000; i += 2) {
+        set.add(i);
+      }
+      var other = new IntSet();
+      for (var i = 0; i < 200_000; i += 3) {
+        other.add(i);
+      }
+      assertEquals(100_000 + 66_667 - 33_334, set.orCardinality(other));
+      var copy = IntSet.and(set, other);
+      assertEquals(33_334, copy.asSet().size());
+      set.and(other);
+      assertEquals(copy.asSet(), set.asSet());
+      assertEquals(set.asSet(), IntSet.map(directory.resolve("bulk.bits"), 200_000).asSet());
+
+      var tooLarge = new IntSet();
+      tooLarge.add(500_000);
+      assertThrows(IllegalArgumentException.class, () -> set.or(tooLarge));
+    }
+
+    @Test
+    public void testMappedSetIsUnchangedWhenBulkOperationDoesNotFit() throws IOException {
+      // 70_000 bits is one full chunk and a partial one ending at 70_016
+      var set = IntSet.map(directory.resolve("partial.bits"), 70_000);
+      set.add(1);
+      set.add(69_000);
+      var other = new IntSet();
+      other.add(5);
+      other.add(66_000);
+      other.add(70_100);
+      assertThrows(IllegalArgumentException.class, () -> set.or(other));
+      assertThrows(IllegalArgumentException.class, () -> set.xor(other));
+      assertEquals(List.of(1, 69_000), set.asSet().stream().toList());
+      assertEquals(2, set.asSet().size());
+      assertEquals(1, set.rank(69_000));
+      assertEquals(List.of(1, 69_000), IntSet.map(directory.resolve("partial.bits"), 70_000).asSet().stream().toList());
+      other.asSet().remove(70_100);
+      set.or(other);
+      assertEquals(List.of(1, 5, 66_000, 69_000), set.asSet().stream().toList());
+    }
+  }
+
+  @Nested
+  public class Ranges {
+
+    private static void checkSameAs(BitSet expected, IntSet set) {
+      assertArrayEquals(expected.stream().toArray(), set.stream().toArray());
+      assertEquals(expected.cardinality(), set.bitCount());
+    }
+
+    @Test
+    public void testAddRangeAcrossChunks() {
+      var set = new IntSet();
+      set.addRange(60_000, 200_000);
+      assertEquals(140_000, set.bitCount());
+      assertFalse(set.contains(59_999));
+      assertTrue(set.contains(60_000));
+      assertTrue(set.contains(131_072));
+      assertTrue(set.contains(199_999));
+      assertFalse(set.contains(200_000));
+    }
+
+    @Test
+    public void testRangesAgainstBitSet() {
+      var random = new Random(8);
+      var set = new IntSet();
+      var expected = new BitSet();
+      for (var i = 0; i < 3_000; i++) {
+        var value = random.nextInt(300_000);
+        set.add(value);
+        expected.set(value);
+      }
+      for (var i = 0; i < 200; i++) {
+        var from = random.nextInt(300_000);
+        var to = from + random.nextInt(i % 10 == 0 ? 100_000 : 500);
+        if (random.nextBoolean()) {
+          set.addRange(from, to);
+          expected.set(from, to);
+        } else {
+          set.removeRange(from, to);
+          expected.clear(from, to);
+        }
+        checkSameAs(expected, set);
+      }
+      for (var value = 0; value < 400_000; value += 37) {
+        assertEquals(expected.nextSetBit(value), set.nextSetBit(value));
+        assertEquals(expected.previousSetBit(value), set.previousSetBit(value));
+        assertEquals(expected.nextClearBit(value), set.nextClearBit(value));
+      }
+    }
+
+    @Test
+    public void testRemoveRangeSplitsRuns() {
+      var set = new IntSet();
+      set.addRange(0, 65_536);
+      set.removeRange(1_000, 2_000);
+      assertEquals(64_536, set.bitCount());
+      assertEquals(999, set.previousSetBit(1_500));
+      assertEquals(2_000, set.nextSetBit(1_000));
+      assertEquals(1_000, set.nextClearBit(0));
+      assertEquals(65_536, set.nextClearBit(2_000));
+      set.removeRange(0, 100_000);
+      assertEquals("[]", set.toString());
+    }
+
+    @Test
+    public void testMergeAdjacentRanges() {
+      var set = new IntSet();
+      set.addRange(10, 20);
+      set.addRange(30, 40);
+      set.addRange(20, 30);
+      assertArrayEquals(IntStream.range(10, 40).toArray(), set.stream().toArray());
+      assertEquals(40, set.nextClearBit(10));
+      assertEquals(9, set.nextClearBit(9));
+    }
+
+    @Test
+    public void testEmptyAndInvalidRanges() {
+      var set = new IntSet();
+      set.addRange(5, 5);
+      set.removeRange(5, 5);
+      assertEquals("[]", set.toString());
+      assertThrows(IllegalArgumentException.class, () -> set.addRange(-1, 5));
+      assertThrows(IllegalArgumentException.class, () -> set.addRange(6, 5));
+      assertThrows(IllegalArgumentException.class, () -> set.removeRange(-1, 5));
+      assertThrows(IllegalArgumentException.class, () -> set.nextSetBit(-1));
+      assertThrows(IllegalArgumentException.class, () -> set.nextClearBit(-1));
+      assertThrows(IllegalArgumentException.class, () -> set.previousSetBit(-2));
+    }
+
+    @Test
+    public void testNeighboursOnEmptyAndFullSet() {
+      var set = new IntSet();
+      assertEquals(-1, set.nextSetBit(0));
+      assertEquals(-1, set.previousSetBit(Integer.MAX_VALUE));
+      assertEquals(-1, set.previousSetBit(-1));
+      assertEquals(123, set.nextClearBit(123));
+      set.addRange(0, Integer.MAX_VALUE);
+      set.add(Integer.MAX_VALUE);
+      assertEquals(-1, set.nextClearBit(0));
+      assertEquals(Integer.MAX_VALUE, set.previousSetBit(Integer.MAX_VALUE));
+      assertEquals(1_000_000, set.nextSetBit(1_000_000));
+    }
+
+    @Test
+    public void testRunEndingAtMaxValue() {
+      assertTimeoutPreemptively(Duration.ofMillis(1_000), () -> {
+        var set = new IntSet();
+        set.addRange(Integer.MAX_VALUE - 10, Integer.MAX_VALUE);
+        set.add(Integer.MAX_VALUE);
+        var expected = IntStream.rangeClosed(Integer.MAX_VALUE - 10, Integer.MAX_VALUE).toArray();
+        assertArrayEquals(expected, set.toIntArray());
+        assertArrayEquals(expected, set.stream().toArray());
+        var values = new ArrayList<Integer>();
+        set.forEach(values::add);
+        assertEquals(Arrays.stream(expected).boxed().toList(), values);
+        var spliterator = set.spliterator();
+        var count = new int[1];
+        spliterator.forEachRemaining((int value) -> count[0]++);
+        assertEquals(11, count[0]);
+        assertTrue(set.toString().endsWith(Integer.MAX_VALUE + "]"));
+      });
+    }
+
+    @Test
+    public void testAddRangeIsFast() {
+      assertTimeoutPreemptively(Duration.ofMillis(1_000), () -> {
+        var set = new IntSet();
+        set.addRange(0, 1_000_000_000);
+        assertEquals(1_000_000_000, set.bitCount());
+        set.removeRange(1, 999_999_999);
+        assertEquals("[0, 999999999]", set.toString());
+      });
+    }
+
+    @Test
+    public void testMappedRanges(@TempDir Path directory) throws IOException {
+      var set = IntSet.map(directory.resolve("ranges.bits"), 100_000);
+      set.addRange(10, 90_000);
+      assertEquals(89_990, set.bitCount());
+      assertEquals(90_000, set.nextClearBit(10));
+      assertEquals(89_999, set.previousSetBit(99_999));
+      set.removeRange(50_000, 60_000);
+      assertEquals(79_990, set.bitCount());
+      assertThrows(IllegalArgumentException.class, () -> set.addRange(95_000, 200_000));
+      assertEquals(79_990, set.bitCount());
+    }
+  }
+
+  @Nested
+  public class Serialization {
+
+    private static byte[] bytesOf(IntSet set) throws IOException {
+      var output = new ByteArrayOutputStream();
+      set.writeTo(output);
+      return output.toByteArray();
+    }
+
+    private static IntSet roundTrip(IntSet set) throws IOException {
+      return IntSet.readFrom(new ByteArrayInputStream(bytesOf(set)));
+    }
+
+    @Test
+    public void testRoundTripEveryContainerKind() throws IOException {
+      var random = new Random(9);
+      var set = new IntSet();
+      for (var i = 0; i < 1_000; i++) {
+        set.add(random.nextInt(65_536));
+      }
+      for (var i = 0; i < 30_000; i++) {
+        set.add(65_536 + random.nextInt(65_536));
+      }
+      set.addRange(200_000, 300_000);
+      set.add(Integer.MAX_VALUE);
+      var copy = roundTrip(set);
+      assertArrayEquals(set.stream().toArray(), copy.stream().toArray());
+      assertEquals(set.bitCount(), copy.bitCount());
+      assertTrue(copy.add(12_345_678));
+    }
+
+    @Test
+    public void testRoundTripEmptySet() throws IOException {
+      var set = new IntSet();
+      assertEquals(12, bytesOf(set).length);
+      assertEquals("[]", roundTrip(set).toString());
+    }
+
+    @Test
+    public void testFormatIsLittleEndianAndVersioned() throws IOException {
+      var set = new IntSet();
+      set.add(3);
+      var bytes = bytesOf(set);
+      assertEquals("ISET", new String(bytes, 0, 4, StandardCharsets.US_ASCII));
+      assertEquals(1, bytes[4]);
+      assertEquals(1, bytes[8]);
+      assertEquals(3, bytes[bytes.length - 2]);
+      assertEquals(0, bytes[bytes.length - 1]);
+    }
+
+    @Test
+    public void testFormatIsCompact() throws IOException {
+      var set = new IntSet();
+      set.addRange(0, 10_000_000);
+      set.add(1_000_000_000);
+      assertTrue(bytesOf(set).length < 3_000);
+      var sparse = new IntSet();
+      for (var i = 0; i < 100; i++) {
+        sparse.add(i * 10_000_000);
+      }
+      assertTrue(bytesOf(sparse).length < 2_000);
+    }
+
+    @Test
+    public void testRoundTripThroughChannels(@TempDir Path directory) throws IOException {
+      var path = directory.resolve("set.bin");
+      var set = new IntSet();
+      for (var i = 0; i < 100_000; i += 3) {
+        set.add(i);
+      }
+      try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+        set.writeTo(channel);
+      }
+      try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        assertArrayEquals(set.stream().toArray(), IntSet.readFrom(channel).stream().toArray());
+      }
+    }
+
+    @Test
+    public void testMappedSetIsWrittenAsBitmaps(@TempDir Path directory) throws IOException {
+      var mapped = IntSet.map(directory.resolve("mapped.bits"), 200_000);
+      mapped.addRange(1_000, 150_000);
+      mapped.add(199_999);
+      var copy = roundTrip(mapped);
+      assertArrayEquals(mapped.stream().toArray(), copy.stream().toArray());
+      assertTrue(copy.add(300_000));
+    }
+
+    @Test
+    public void testReadRejectsInvalidStreams() throws IOException {
+      var set = new IntSet();
+      set.addRange(0, 100);
+      var bytes = bytesOf(set);
+      assertThrows(EOFException.class, () -> IntSet.readFrom(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 1))));
+      var badMagic = bytes.clone();
+      badMagic[0] = 'X';
+      assertThrows(IOException.class, () -> IntSet.readFrom(new ByteArrayInputStream(badMagic)));
+      var badVersion = bytes.clone();
+      badVersion[4] = 2;
+      assertThrows(IOException.class, () -> IntSet.readFrom(new ByteArrayInputStream(badVersion)));
+      var badKind = bytes.clone();
+      badKind[16] = 7;
+      assertThrows(IOException.class, () -> IntSet.readFrom(new ByteArrayInputStream(badKind)));
+      assertThrows(NullPointerException.class, () -> IntSet.readFrom((InputStream) null));
+    }
+  }
+
+  @Nested
+  public class BulkAccess {
+
+    private static IntSet mixedSet() {
+      var random = new Random(10);
+      var set = new IntSet();
+      for (var i = 0; i < 1_000; i++) {
+        set.add(random.nextInt(65_536));
+      }
+      for (var i = 0; i < 30_000; i++) {
+        set.add(65_536 + random.nextInt(65_536));
+      }
+      set.addRange(200_000, 300_000);
+      set.add(Integer.MAX_VALUE);
+      return set;
+    }
+
+    @Test
+    public void testForEachMatchesStream() {
+      var set = mixedSet();
+      var values = new ArrayList<Integer>();
+      set.forEach((int value) -> values.add(value));
+      assertEquals(set.stream().boxed().toList(), values);
+    }
+
+    @Test
+    public void testToIntArray() {
+      var set = mixedSet();
+      var array = set.toIntArray();
+      assertEquals(set.bitCount(), array.length);
+      assertArrayEquals(set.stream().toArray(), array);
+      assertArrayEquals(new int[0], new IntSet().toIntArray());
+    }
+
+    @Test
+    public void testPrimitiveIterator() {
+      var set = new IntSet();
+      set.add(4);
+      set.add(70_000);
+      set.add(2);
+      var iterator = set.iterator();
+      assertTrue(iterator.hasNext());
+      assertEquals(2, iterator.nextInt());
+      assertEquals(4, iterator.nextInt());
+      assertEquals(70_000, iterator.nextInt());
+      assertFalse(iterator.hasNext());
+      assertThrows(NoSuchElementException.class, iterator::nextInt);
+    }
+
+    @Test
+    public void testPrimitiveIteratorRemove() {
+      var set = mixedSet();
+      var expected = set.stream().filter(value -> value % 3 != 0).toArray();
+      var iterator = set.iterator();
+      assertThrows(IllegalStateException.class, iterator::remove);
+      while (iterator.hasNext()) {
+        if (iterator.nextInt() % 3 == 0) {
+          iterator.remove();
+          assertThrows(IllegalStateException.class, iterator::remove);
+        }
+      }
+      assertArrayEquals(expected, set.toIntArray());
+    }
+
+    @Test
+    public void testSpliteratorForEachRemainingAfterAdvanceAndSplit() {
+      var set = mixedSet();
+      var expected = set.toIntArray();
+      var spliterator = set.spliterator();
+      var values = new ArrayList<Integer>();
+      spliterator.tryAdvance((int value) -> values.add(value));
+      spliterator.tryAdvance((int value) -> values.add(value));
+      var prefix = spliterator.trySplit();
+      assertNotNull(prefix);
+      prefix.forEachRemaining((int value) -> values.add(value));
+      spliterator.forEachRemaining((int value) -> values.add(value));
+      assertEquals(0, spliterator.estimateSize());
+      assertFalse(spliterator.tryAdvance((int value) -> fail()));
+      assertEquals(Arrays.stream(expected).boxed().toList(), values);
+    }
+
+    @Test
+    public void testForEachIsFast() {
+      var set = new IntSet();
+      for (var i = 0; i < 10_000_000; i += 2) {
+        set.add(i);
+      }
+      assertTimeoutPreemptively(Duration.ofMillis(1_000), () -> {
+        var sum = new long[1];
+        set.forEach((int value) -> sum[0] += value);
+        assertEquals(24_999_995_000_000L, sum[0]);
+        assertEquals(5_000_000, set.toIntArray().length);
+      });
+    }
+  }
 }
\ No newline at end of file
@@ -0,0 +1,90 @@
+package fr.uge.orderedmap;
+
+import java.util.LinkedHashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g") // The largest map and its LinkedHashMap source need a few gigabytes
+@State(Scope.Benchmark)
+public class OrderedMapBenchmark {
+
+    private static final int KEYS = 32;
+
+    // 2^22 keys of about 50 bytes each, far more than a last level cache can hold
+    private static final int POOL = 1 << 22;
+
+    // Far past the cache as well, about 80 bytes per entry once the String, the Integer and the index are counted
+    @Param({ "1000", "4000000", "16000000" })
+    public int size;
+
+    @Param({ "false", "true" })
+    public boolean perfect;
+
+    private OrderedMap<String, Integer> orderedMap;
+
+    // Each invocation takes the next batch, so the probed entries are not the ones of the previous invocation
+    private String[][] batches;
+
+    private int cursor;
+
+    private Integer[] out;
+
+    @Setup
+    public void setup() {
+        var map = new LinkedHashMap<String, Integer>();
+        for (var i = 0; i < size; i++) {
+            map.put("key" + i, i);
+        }
+        orderedMap = perfect ? OrderedMap.ofPerfect(map) : OrderedMap.ofIndexed(map);
+        var random = new Random(0);
+        // Half of the keys are missing, the others are spread over the whole map
+        batches = new String[POOL / KEYS][KEYS];
+        for (var batch : batches) {
+            for (var i = 0; i < KEYS; i++) {
+                batch[i] = (i % 2 == 0 ? "key" : "other") + random.nextInt(size);
+            }
+        }
+        out = new Integer[KEYS];
+    }
+
+    private String[] nextBatch() {
+        var batch = batches[cursor];
+        cursor = cursor + 1 == batches.length ? 0 : cursor + 1;
+        return batch;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public Integer[] getLoop() {
+        var keys = nextBatch();
+        for (var i = 0; i < KEYS; i++) {
+            out[i] = orderedMap.get(keys[i]);
+        }
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public Integer[] getAll() {
+        OrderedMap.getAll(orderedMap, nextBatch(), out);
+        return out;
+    }
+
+}
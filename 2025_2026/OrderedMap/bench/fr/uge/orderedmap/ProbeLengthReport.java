@@ -0,0 +1,78 @@
+package fr.uge.orderedmap;
+
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+public final class ProbeLengthReport {
+
+    private static final int MAX_BUCKET = 16;
+
+    private ProbeLengthReport() {
+        throw new AssertionError();
+    }
+
+    private static void record(long[] histogram, int probes) {
+        histogram[0] += probes; // Nobody finds a key in 0 probes, so slot 0 keeps the total
+        histogram[Math.min(probes, MAX_BUCKET)]++;
+    }
+
+    private static long[] floorModHistogram(Map.Entry<?, ?>[] entries) {
+        var indexArray = OrderedMap.indexArray(entries);
+        var histogram = new long[MAX_BUCKET + 1];
+        for (var i = 0; i < entries.length; i++) {
+            var slot = Math.floorMod(entries[i].getKey().hashCode(), indexArray.length);
+            var probes = 1;
+            while (indexArray[slot] != i + 1) {
+                slot = (slot + 1) % indexArray.length;
+                probes++;
+            }
+            record(histogram, probes);
+        }
+        return histogram;
+    }
+
+    private static long[] mixedHistogram(Map.Entry<?, ?>[] entries) {
+        var lookupIndex = OrderedMap.lookupIndex(entries);
+        var mask = lookupIndex.length - 1;
+        var histogram = new long[MAX_BUCKET + 1];
+        for (var i = 0; i < entries.length; i++) {
+            var slot = OrderedMap.mix(entries[i].getKey().hashCode()) & mask;
+            var probes = 1;
+            while ((lookupIndex[slot] & mask) != i + 1) {
+                slot = (slot + 1) & mask;
+                probes++;
+            }
+            record(histogram, probes);
+        }
+        return histogram;
+    }
+
+    private static void print(String title, long[] histogram, int size) {
+        var builder = new StringBuilder();
+        for (var probes = 1; probes <= MAX_BUCKET; probes++) {
+            if (histogram[probes] != 0) {
+                builder.append(probes == MAX_BUCKET ? ">=" : "").append(probes).append(':').append(histogram[probes]).append(' ');
+            }
+        }
+        System.out.printf("  %-10s mean %.2f  %s%n", title, (double) histogram[0] / size, builder);
+    }
+
+    private static void report(String name, int size, IntFunction<Object> keyFactory) {
+        var entries = IntStream.range(0, size)
+                .mapToObj(i -> Map.entry(keyFactory.apply(i), i))
+                .toArray(Map.Entry<?, ?>[]::new);
+        System.out.println(name + " (" + size + " keys)");
+        print("floorMod", floorModHistogram(entries), size);
+        print("mixed", mixedHistogram(entries), size);
+    }
+
+    public static void main(String[] args) {
+        var size = args.length == 0 ? 100_000 : Integer.parseInt(args[0]);
+        report("sequential Integers", size, i -> i);
+        report("Integers stepping by 64", size, i -> i * 64);
+        report("sequential Strings", size, i -> "key" + i);
+        report("Longs above 2^32", size, i -> (1L << 32) + i);
+    }
+
+}
@@ -0,0 +1,53 @@
+package fr.uge.orderedmap;
+
+import module java.base;
+
+public final class IntOrderedMapTest extends PrimitiveOrderedMapTest<Integer> {
+
+  @Override
+  <V> Map<Integer, V> of(Map<Integer, ? extends V> map) {
+    return IntOrderedMap.of(map);
+  }
+
+  @Override
+  Integer key(int value) {
+    return value;
+  }
+
+  @Override
+  Integer clusteredKey(int value, int low) {
+    return (value << 12) + low;
+  }
+
+  @Override
+  int countPresent(Map<Integer, ?> map, int from, int to) {
+    var intMap = (IntOrderedMap<?>) map;
+    var count = 0;
+    for (var key = from; key < to; key++) {
+      if (intMap.containsKey(key)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Override
+  <V> V get(Map<Integer, V> map, Integer key) {
+    return ((IntOrderedMap<V>) map).get(key.intValue());
+  }
+
+  @Override
+  boolean containsKey(Map<Integer, ?> map, Integer key) {
+    return ((IntOrderedMap<?>) map).containsKey(key.intValue());
+  }
+
+  @Override
+  Object otherBoxedKey(int value) {
+    return (long) value;
+  }
+
+  @Override
+  Class<?> mapClass() {
+    return IntOrderedMap.class;
+  }
+}
@@ -0,0 +1,76 @@
+package fr.uge.orderedmap;
+
+import java.util.Map;
+import java.util.Objects;
+
+public final class LongOrderedMap<V> extends PrimitiveOrderedMap<Long, V> {
+
+    private final long[] keys;
+
+    private LongOrderedMap(long[] keys, Object[] values) {
+        this.keys = keys;
+        super(values);
+    }
+
+    public static <V> LongOrderedMap<V> of(Map<Long, ? extends V> map) {
+        Objects.requireNonNull(map);
+        var nextEmptyIndex = 0;
+        var keys = new long[map.size()];
+        var values = new Object[map.size()];
+        for (var entry : map.entrySet()) {
+            keys[nextEmptyIndex] = Objects.requireNonNull(entry.getKey());
+            values[nextEmptyIndex++] = entry.getValue();
+        }
+        return new LongOrderedMap<>(keys, values);
+    }
+
+    @Override
+    Long key(int index) {
+        return keys[index];
+    }
+
+    @Override
+    int keyHashCode(int index) {
+        return Long.hashCode(keys[index]);
+    }
+
+    // The probe compares the primitive keys in place, so a lookup neither boxes nor allocates
+    private int indexOf(long key) {
+        if (keys.length == 0) {
+            return -1;
+        }
+        var indexArray = indexArray();
+        var mask = OrderedMap.mask(indexArray);
+        var hash = OrderedMap.mix(Long.hashCode(key));
+        var fragment = hash & ~mask;
+        for (var slot = hash & mask; indexArray[slot] != 0; slot = (slot + 1) & mask) {
+            var cell = indexArray[slot];
+            if ((cell & ~mask) == fragment && keys[(cell & mask) - 1] == key) {
+                return (cell & mask) - 1;
+            }
+        }
+        return -1;
+    }
+
+    public V get(long key) {
+        var index = indexOf(key);
+        return index == -1 ? null : value(index);
+    }
+
+    public boolean containsKey(long key) {
+        return indexOf(key) != -1;
+    }
+
+    @Override
+    public V get(Object key) {
+        Objects.requireNonNull(key);
+        return key instanceof Long longKey ? get(longKey.longValue()) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        Objects.requireNonNull(key);
+        return key instanceof Long longKey && containsKey(longKey.longValue());
+    }
+
+}
@@ -0,0 +1,53 @@
+package fr.uge.orderedmap;
+
+import module java.base;
+
+public final class LongOrderedMapTest extends PrimitiveOrderedMapTest<Long> {
+
+  @Override
+  <V> Map<Long, V> of(Map<Long, ? extends V> map) {
+    return LongOrderedMap.of(map);
+  }
+
+  @Override
+  Long key(int value) {
+    return (long) value;
+  }
+
+  @Override
+  Long clusteredKey(int value, int low) {
+    return ((long) value << 32) + low;
+  }
+
+  @Override
+  int countPresent(Map<Long, ?> map, int from, int to) {
+    var longMap = (LongOrderedMap<?>) map;
+    var count = 0;
+    for (long key = from; key < to; key++) {
+      if (longMap.containsKey(key)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Override
+  <V> V get(Map<Long, V> map, Long key) {
+    return ((LongOrderedMap<V>) map).get(key.longValue());
+  }
+
+  @Override
+  boolean containsKey(Map<Long, ?> map, Long key) {
+    return ((LongOrderedMap<?>) map).containsKey(key.longValue());
+  }
+
+  @Override
+  Object otherBoxedKey(int value) {
+    return value;
+  }
+
+  @Override
+  Class<?> mapClass() {
+    return LongOrderedMap.class;
+  }
+}
@@ -1,80 +1,413 @@
 package fr.uge.orderedmap;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractCollection;
 import java.util.AbstractMap;
 import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
 import java.util.Spliterator;
-import java.util.Spliterators;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
 
 public final class OrderedMap<K, V> extends AbstractMap<K, V> {
 
-    private final Map.Entry<K, V>[] entries;
+    private static final int BUCKET_SIZE = 4;
 
+    private static final int MAX_DISPLACEMENT = 1 << 20;
+
+    private static final int BATCH_SIZE = 64;
+
+    private static final int CHUNK_SHIFT = 5;
+
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final Object REMOVED = new Object();
+
+    private static final VarHandle INDEX_ARRAY;
+
+    private static final VarHandle INDEX_CELL = MethodHandles.arrayElementVarHandle(int[].class);
+
+    static {
+        try {
+            INDEX_ARRAY = MethodHandles.lookup().findVarHandle(OrderedMap.class, "indexArray", int[].class);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    // Chunks of CHUNK_SIZE positions, only the last one can be shorter, so updates share the chunks they do not touch.
+    // A removed key leaves REMOVED at its position, the positions stored in the indexes stay valid
+    private final Object[][] keys;
+
+    private final Object[][] values;
+
+    // Its last cell is the number of positions inserted, the first update that claims it extends the index in place
     private int[] indexArray;
 
-    private OrderedMap(Map.Entry<K, V>[] entries) {
-        this.entries = entries;
+    private final int[] perfectIndex;
+
+    // sizes[i] is the number of keys in the chunks before i
+    private final int[] sizes;
+
+    private OrderedMap(Object[][] keys, Object[][] values, int[] sizes, int[] perfectIndex) {
+        this.keys = keys;
+        this.values = values;
+        this.sizes = sizes;
+        this.perfectIndex = perfectIndex;
         super();
     }
 
-    @SuppressWarnings("unchecked")
-    public static <K, V> OrderedMap<K, V> of(Map<? extends K, ? extends V> map) {
+    private static <K, V> OrderedMap<K, V> of(Object[] keys, Object[] values, int[] perfectIndex) {
+        var chunkCount = (keys.length + CHUNK_MASK) >> CHUNK_SHIFT;
+        var sizes = new int[chunkCount + 1];
+        for (var chunk = 1; chunk <= chunkCount; chunk++) {
+            sizes[chunk] = Math.min(keys.length, chunk << CHUNK_SHIFT);
+        }
+        return new OrderedMap<>(chunks(keys), chunks(values), sizes, perfectIndex);
+    }
+
+    private static <K, V> OrderedMap<K, V> of(Map<? extends K, ? extends V> map, boolean perfect) {
         Objects.requireNonNull(map);
         var nextEmptyIndex = 0;
-        var array = (Map.Entry<K, V>[]) new Map.Entry<?, ?>[map.size()];
+        var keys = new Object[map.size()];
+        var values = new Object[map.size()];
         for (var entry : map.entrySet()) {
-            var key = Objects.requireNonNull(entry.getKey());
-            var value = entry.getValue();
-            array[nextEmptyIndex++] = new AbstractMap.SimpleImmutableEntry<>(key, value);
+            keys[nextEmptyIndex] = Objects.requireNonNull(entry.getKey());
+            values[nextEmptyIndex++] = entry.getValue();
+        }
+        return of(keys, values, perfect ? perfectIndex(keys) : null);
+    }
+
+    private static Object[][] chunks(Object[] array) {
+        var chunks = new Object[(array.length + CHUNK_MASK) >> CHUNK_SHIFT][];
+        for (var chunk = 0; chunk < chunks.length; chunk++) {
+            var from = chunk << CHUNK_SHIFT;
+            chunks[chunk] = Arrays.copyOfRange(array, from, Math.min(array.length, from + CHUNK_SIZE));
         }
-        return new OrderedMap<>(array);
+        return chunks;
+    }
+
+    // Copies the spine and the chunk of position, the other chunks are shared
+    private static Object[][] copyOnWrite(Object[][] chunks, int position, Object element) {
+        var copy = chunks.clone();
+        var chunk = copy[position >> CHUNK_SHIFT].clone();
+        chunk[position & CHUNK_MASK] = element;
+        copy[position >> CHUNK_SHIFT] = chunk;
+        return copy;
+    }
+
+    // position is the number of positions in chunks
+    private static Object[][] append(Object[][] chunks, int position, Object element) {
+        if ((position & CHUNK_MASK) == 0) {
+            var copy = Arrays.copyOf(chunks, chunks.length + 1);
+            copy[chunks.length] = new Object[] { element };
+            return copy;
+        }
+        var copy = chunks.clone();
+        var chunk = Arrays.copyOf(copy[copy.length - 1], (position & CHUNK_MASK) + 1);
+        chunk[position & CHUNK_MASK] = element;
+        copy[copy.length - 1] = chunk;
+        return copy;
+    }
+
+    public static <K, V> OrderedMap<K, V> of(Map<? extends K, ? extends V> map) {
+        return of(map, false);
+    }
+
+    public static <K, V> OrderedMap<K, V> ofIndexed(Map<? extends K, ? extends V> map) {
+        OrderedMap<K, V> orderedMap = of(map);
+        INDEX_ARRAY.setRelease(orderedMap, orderedMap.buildIndexArray(orderedMap.positions()));
+        return orderedMap;
+    }
+
+    public static <K, V> OrderedMap<K, V> ofPerfect(Map<? extends K, ? extends V> map) {
+        OrderedMap<K, V> orderedMap = of(map, true);
+        if (orderedMap.perfectIndex == null) {
+            INDEX_ARRAY.setRelease(orderedMap, orderedMap.buildIndexArray(orderedMap.positions())); // Keys with equal hashCodes cannot be told apart
+        }
+        return orderedMap;
+    }
+
+    public static <K, V> OrderedMap<K, V> with(OrderedMap<K, V> map, K key, V value) {
+        Objects.requireNonNull(map);
+        Objects.requireNonNull(key);
+        var position = map.indexOf(key);
+        if (position != -1) {
+            if (Objects.equals(map.value(position), value)) {
+                return map;
+            }
+            var orderedMap = new OrderedMap<K, V>(map.keys, copyOnWrite(map.values, position, value), map.sizes, map.perfectIndex);
+            INDEX_ARRAY.setRelease(orderedMap, (int[]) INDEX_ARRAY.getAcquire(map)); // Same keys at the same positions
+            return orderedMap;
+        }
+        var positions = map.positions();
+        var chunkCount = (positions + CHUNK_SIZE) >> CHUNK_SHIFT;
+        var sizes = Arrays.copyOf(map.sizes, chunkCount + 1);
+        sizes[chunkCount] = map.size() + 1;
+        var orderedMap = new OrderedMap<K, V>(append(map.keys, positions, key), append(map.values, positions, value), sizes, null);
+        var indexArray = (int[]) INDEX_ARRAY.getAcquire(map);
+        if (indexArray != null) {
+            // Another update of map may have claimed the next position already, the cells past its positions never match
+            if (2 * (positions + 1) <= mask(indexArray) + 1
+                    && INDEX_CELL.compareAndSet(indexArray, indexArray.length - 1, positions, positions + 1)) {
+                insert(indexArray, key.hashCode(), positions);
+            } else {
+                indexArray = orderedMap.buildIndexArray(2 * (positions + 1));
+            }
+            INDEX_ARRAY.setRelease(orderedMap, indexArray);
+        }
+        return orderedMap;
+    }
+
+    public static <K, V> OrderedMap<K, V> without(OrderedMap<K, V> map, Object key) {
+        Objects.requireNonNull(map);
+        Objects.requireNonNull(key);
+        var position = map.indexOf(key);
+        if (position == -1) {
+            return map;
+        }
+        var size = map.size() - 1;
+        var positions = map.positions();
+        if (2 * size < positions) { // Mostly removed keys, compact them
+            var keys = new Object[size];
+            var values = new Object[size];
+            var nextEmptyIndex = 0;
+            for (var i = 0; i < positions; i++) {
+                if (i != position && map.key(i) != REMOVED) {
+                    keys[nextEmptyIndex] = map.key(i);
+                    values[nextEmptyIndex++] = map.value(i);
+                }
+            }
+            return of(keys, values, null);
+        }
+        var sizes = map.sizes.clone();
+        for (var chunk = (position >> CHUNK_SHIFT) + 1; chunk < sizes.length; chunk++) {
+            sizes[chunk]--;
+        }
+        var orderedMap = new OrderedMap<K, V>(copyOnWrite(map.keys, position, REMOVED), copyOnWrite(map.values, position, null),
+                sizes, map.perfectIndex);
+        INDEX_ARRAY.setRelease(orderedMap, (int[]) INDEX_ARRAY.getAcquire(map));
+        return orderedMap;
+    }
+
+    public static <K, V> OrderedMap<K, V> withAll(OrderedMap<K, V> map, Map<? extends K, ? extends V> other) {
+        Objects.requireNonNull(map);
+        Objects.requireNonNull(other);
+        // Each update copies one chunk and the spine, past a point rebuilding once is cheaper
+        if (other.size() * (CHUNK_SIZE + map.keys.length) > map.positions()) {
+            var merged = new LinkedHashMap<K, V>(map);
+            merged.putAll(other);
+            return of(merged);
+        }
+        var orderedMap = map;
+        for (var entry : other.entrySet()) {
+            orderedMap = with(orderedMap, Objects.requireNonNull(entry.getKey()), entry.getValue());
+        }
+        return orderedMap;
+    }
+
+    public static <K, V> void getAll(OrderedMap<? super K, ? extends V> map, K[] keys, V[] out) {
+        Objects.requireNonNull(map);
+        Objects.requireNonNull(out);
+        Objects.checkFromIndexSize(0, keys.length, out.length);
+        map.getAll(keys, out);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> List<V> getAll(OrderedMap<? super K, ? extends V> map, Collection<? extends K> keys) {
+        Objects.requireNonNull(map);
+        var array = keys.toArray();
+        var out = new Object[array.length];
+        map.getAll(array, out);
+        return Collections.unmodifiableList(Arrays.asList((V[]) out));
     }
 
     @Override
     public int size() {
-        return entries.length;
+        return sizes[sizes.length - 1];
     }
 
-    @Override
-    public Set<Entry<K, V>> entrySet() {
+    // Number of positions, removed keys included
+    private int positions() {
+        return keys.length == 0 ? 0 : ((keys.length - 1) << CHUNK_SHIFT) + keys[keys.length - 1].length;
+    }
 
-        return new AbstractSet<>() {
+    // First position at or after position that holds a key
+    private int nextPosition(int position) {
+        var positions = positions();
+        while (position < positions && key(position) == REMOVED) {
+            position++;
+        }
+        return position;
+    }
+
+    @SuppressWarnings("unchecked")
+    private K key(int position) {
+        return (K) keys[position >> CHUNK_SHIFT][position & CHUNK_MASK];
+    }
+
+    @SuppressWarnings("unchecked")
+    private V value(int position) {
+        return (V) values[position >> CHUNK_SHIFT][position & CHUNK_MASK];
+    }
+
+    private Entry<K, V> entry(int position) {
+        return new AbstractMap.SimpleImmutableEntry<>(key(position), value(position));
+    }
+
+    private <T> Iterator<T> iterator(IntFunction<T> elementAt) {
+        return new Iterator<>() {
+
+            private int position = nextPosition(0);
 
             @Override
-            public Iterator<Entry<K, V>> iterator() {
-                return new Iterator<>() {
+            public boolean hasNext() {
+                return position < positions();
+            }
 
-                    private int index = 0;
+            @Override
+            public T next() {
+                if(!hasNext()){
+                    throw new NoSuchElementException();
+                }
+                var element = elementAt.apply(position);
+                position = nextPosition(position + 1);
+                return element;
+            }
 
-                    @Override
-                    public boolean hasNext() {
-                        return index < entries.length;
-                    }
+        };
+    }
 
-                    @Override
-                    public Entry<K, V> next() {
-                        if(!hasNext()){
-                            throw new NoSuchElementException();
-                        }
-                        return entries[index++];
-                    }
+    // Position of the key that has ordinal keys before it
+    private int positionOf(int ordinal) {
+        var low = 0;
+        var high = keys.length - 1;
+        while (low < high) {
+            var middle = (low + high + 1) >>> 1;
+            if (sizes[middle] <= ordinal) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        var rank = sizes[low];
+        for (var position = low << CHUNK_SHIFT; ; position++) {
+            if (key(position) != REMOVED) {
+                if (rank == ordinal) {
+                    return position;
+                }
+                rank++;
+            }
+        }
+    }
+
+    private <T> Spliterator<T> spliterator(int start, int firstOrdinal, int count, IntFunction<T> elementAt, int characteristics) {
+        return new Spliterator<>() {
+
+            private int position = start;
+
+            private int ordinal = firstOrdinal;
+
+            private int remaining = count;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                Objects.requireNonNull(action);
+                if (remaining == 0) {
+                    return false;
+                }
+                position = nextPosition(position);
+                ordinal++;
+                remaining--;
+                action.accept(elementAt.apply(position++));
+                return true;
+            }
+
+            @Override
+            public void forEachRemaining(Consumer<? super T> action) {
+                Objects.requireNonNull(action);
+                for (; remaining > 0; remaining--, ordinal++) {
+                    position = nextPosition(position);
+                    action.accept(elementAt.apply(position++));
+                }
+            }
+
+            @Override
+            public Spliterator<T> trySplit() {
+                var half = remaining >>> 1;
+                if (half == 0) {
+                    return null;
+                }
+                var prefix = OrderedMap.this.spliterator(position, ordinal, half, elementAt, characteristics);
+                ordinal += half;
+                position = positionOf(ordinal); // Found through sizes, without walking the prefix
+                remaining -= half;
+                return prefix;
+            }
+
+            @Override
+            public long estimateSize() {
+                return remaining;
+            }
+
+            @Override
+            public int characteristics() {
+                return characteristics | ORDERED | IMMUTABLE | SIZED | SUBSIZED;
+            }
+
+        };
+    }
+
+    private <T> Spliterator<T> spliterator(IntFunction<T> elementAt, int characteristics) {
+        return spliterator(0, 0, size(), elementAt, characteristics);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action);
+        var positions = positions();
+        for (var position = 0; position < positions; position++) {
+            var key = key(position);
+            if (key != REMOVED) {
+                action.accept(key, value(position));
+            }
+        }
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+
+        return new AbstractSet<>() {
 
-                };
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return OrderedMap.this.iterator(OrderedMap.this::entry);
             }
 
             @Override
             public int size() {
-                return entries.length;
+                return OrderedMap.this.size();
             }
 
             @Override
             public Spliterator<Entry<K, V>> spliterator() {
-                return Spliterators.spliterator(entries, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+                return OrderedMap.this.spliterator(OrderedMap.this::entry, Spliterator.DISTINCT | Spliterator.NONNULL);
             }
 
         };
@@ -96,45 +429,248 @@ public final class OrderedMap<K, V> extends AbstractMap<K, V> {
         return indexArray;
     }
 
-    @Override
-    public V get(Object key) {
-        Objects.requireNonNull(key);
-        if(entries.length == 0){
-            return null;
+    static int mix(int hashCode) {
+        var hash = hashCode;
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        return hash ^ (hash >>> 16); // murmur3 finalizer, spreads clustered hashCodes over every bit
+    }
+
+    static int[] lookupIndex(Map.Entry<?, ?>[] entries) {
+        return lookupIndex(entries.length, i -> entries[i].getKey().hashCode());
+    }
+
+    static int[] lookupIndex(int size, IntUnaryOperator hashCodeAt) {
+        var lookupIndex = new int[Integer.highestOneBit(Math.max(1, size * 2 - 1)) << 1];
+        for (var i = 0; i < size; i++) {
+            insert(lookupIndex, hashCodeAt.applyAsInt(i), i);
         }
-        if(indexArray == null){
-            indexArray = indexArray(entries);
+        return lookupIndex;
+    }
+
+    // Builds the index stored in the field behind handle once, the object lock makes the other readers wait for it
+    static int[] lookupIndex(VarHandle handle, Object owner, Object lock, Supplier<int[]> builder) {
+        var lookupIndex = (int[]) handle.getAcquire(owner);
+        if (lookupIndex == null) {
+            synchronized (lock) {
+                lookupIndex = (int[]) handle.getAcquire(owner);
+                if (lookupIndex == null) {
+                    lookupIndex = builder.get();
+                    handle.setRelease(owner, lookupIndex);
+                }
+            }
         }
-        var hash = Math.floorMod(key.hashCode(), indexArray.length);
-        while (indexArray[hash] != 0) {
-            var entryIndex = indexArray[hash] - 1;
-            var entry = entries[entryIndex];
-            if (entry.getKey().equals(key)) {
-                return entry.getValue();
+        return lookupIndex;
+    }
+
+    // The slots are a power of two, the index of an OrderedMap has one more cell after them
+    static int mask(int[] lookupIndex) {
+        return Integer.highestOneBit(lookupIndex.length) - 1;
+    }
+
+    static int probe(int[] lookupIndex, int hash, IntPredicate isKeyAt) {
+        return probe(lookupIndex, hash, lookupIndex[hash & mask(lookupIndex)], isKeyAt);
+    }
+
+    // cell is the content of the home slot of hash, loaded beforehand by the batched lookups
+    static int probe(int[] lookupIndex, int hash, int cell, IntPredicate isKeyAt) {
+        var mask = mask(lookupIndex);
+        var fragment = hash & ~mask;
+        for (var slot = hash & mask; cell != 0; slot = (slot + 1) & mask, cell = lookupIndex[slot]) {
+            if ((cell & ~mask) == fragment && isKeyAt.test((cell & mask) - 1)) {
+                return (cell & mask) - 1;
             }
-            hash = (hash + 1) % indexArray.length;
         }
-        return null;
+        return -1;
     }
 
-    @Override
-    public boolean containsKey(Object key) {
-        if(entries.length == 0){
-            return false;
+    private static void insert(int[] lookupIndex, int hashCode, int index) {
+        var mask = mask(lookupIndex);
+        var hash = mix(hashCode);
+        var slot = hash & mask;
+        while (lookupIndex[slot] != 0) {
+            slot = (slot + 1) & mask;
         }
-        if(indexArray == null){
-            indexArray = indexArray(entries);
+        lookupIndex[slot] = (hash & ~mask) | (index + 1);
+    }
+
+    private static int fastRange(int hash, int range) {
+        return (int) (((hash & 0xFFFFFFFFL) * range) >>> 32);
+    }
+
+    static int[] perfectIndex(Object[] keys) {
+        var size = keys.length;
+        var bucketCount = Math.max(1, (size + BUCKET_SIZE - 1) / BUCKET_SIZE);
+        var slotCount = Math.max(1, size + size / 8);
+        var hashes = new int[size];
+        var bucketStarts = new int[bucketCount + 1];
+        for (var i = 0; i < size; i++) {
+            hashes[i] = mix(keys[i].hashCode());
+            bucketStarts[fastRange(hashes[i], bucketCount) + 1]++;
         }
-        var hash = Math.floorMod(key.hashCode(), indexArray.length);
-        while (indexArray[hash] != 0) {
-            var entryIndex = indexArray[hash] - 1;
-            var entry = entries[entryIndex];
-            if (entry.getKey().equals(key)) {
-                return true;
+        var maxBucketSize = 0;
+        for (var bucket = 0; bucket < bucketCount; bucket++) {
+            maxBucketSize = Math.max(maxBucketSize, bucketStarts[bucket + 1]);
+            bucketStarts[bucket + 1] += bucketStarts[bucket];
+        }
+        var members = new int[size];
+        var nextMember = Arrays.copyOf(bucketStarts, bucketCount);
+        for (var i = 0; i < size; i++) {
+            members[nextMember[fastRange(hashes[i], bucketCount)]++] = i;
+        }
+        var perfectIndex = new int[1 + bucketCount + slotCount];
+        perfectIndex[0] = bucketCount;
+        var slots = new int[maxBucketSize];
+        // Biggest buckets first, while most slots are still free
+        for (var bucketSize = maxBucketSize; bucketSize > 0; bucketSize--) {
+            for (var bucket = 0; bucket < bucketCount; bucket++) {
+                var start = bucketStarts[bucket];
+                if (bucketStarts[bucket + 1] - start != bucketSize) {
+                    continue;
+                }
+                for (var i = 0; i < bucketSize; i++) {
+                    slots[i] = hashes[members[start + i]];
+                    if (indexOf(slots, i, slots[i]) != -1) {
+                        return null; // Same mixed hash, no displacement can separate them
+                    }
+                }
+                var displacement = displace(hashes, members, start, bucketSize, perfectIndex, 1 + bucketCount, slots);
+                if (displacement == -1) {
+                    return null;
+                }
+                for (var i = 0; i < bucketSize; i++) {
+                    perfectIndex[1 + bucketCount + slots[i]] = members[start + i] + 1;
+                }
+                perfectIndex[1 + bucket] = displacement;
+            }
+        }
+        return perfectIndex;
+    }
+
+    private static int indexOf(int[] array, int length, int value) {
+        for (var i = 0; i < length; i++) {
+            if (array[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int displace(int[] hashes, int[] members, int start, int bucketSize,
+                                int[] perfectIndex, int slotsOffset, int[] slots) {
+        var slotCount = perfectIndex.length - slotsOffset;
+        for (var displacement = 0; displacement < MAX_DISPLACEMENT; displacement++) {
+            var placed = 0;
+            for (; placed < bucketSize; placed++) {
+                var slot = fastRange(mix(hashes[members[start + placed]] ^ displacement), slotCount);
+                if (perfectIndex[slotsOffset + slot] != 0 || indexOf(slots, placed, slot) != -1) {
+                    break;
+                }
+                slots[placed] = slot;
+            }
+            if (placed == bucketSize) {
+                return displacement;
             }
-            hash = (hash + 1) % indexArray.length;
         }
-        return false;
+        return -1;
+    }
+
+    private int perfectIndexOf(int[] perfectIndex, Object key) {
+        var bucketCount = perfectIndex[0];
+        var hash = mix(key.hashCode());
+        var displacement = perfectIndex[1 + fastRange(hash, bucketCount)];
+        var slot = fastRange(mix(hash ^ displacement), perfectIndex.length - 1 - bucketCount);
+        var index = perfectIndex[1 + bucketCount + slot] - 1;
+        return index != -1 && key(index).equals(key) ? index : -1;
+    }
+
+    // Room for capacity positions at most half full, the cell after the slots counts the positions inserted
+    private int[] buildIndexArray(int capacity) {
+        var positions = positions();
+        var indexArray = new int[(Integer.highestOneBit(Math.max(1, capacity * 2 - 1)) << 1) + 1];
+        for (var position = 0; position < positions; position++) {
+            var key = key(position);
+            if (key != REMOVED) {
+                insert(indexArray, key.hashCode(), position);
+            }
+        }
+        indexArray[indexArray.length - 1] = positions;
+        return indexArray;
+    }
+
+    private int[] indexArray() {
+        return lookupIndex(INDEX_ARRAY, this, keys, () -> buildIndexArray(positions()));
+    }
+
+    private int indexOf(Object key) {
+        if(size() == 0){
+            return -1;
+        }
+        if (perfectIndex != null) {
+            return perfectIndexOf(perfectIndex, key);
+        }
+        var positions = positions(); // The index may be shared with maps that have more positions
+        return probe(indexArray(), mix(key.hashCode()), position -> position < positions && key(position).equals(key));
+    }
+
+    // Resolves the keys by batches, each pass issues independent loads so that their cache misses overlap
+    private void getAll(Object[] keys, Object[] out) {
+        if (size() == 0) {
+            for (var key : keys) {
+                Objects.requireNonNull(key);
+            }
+            Arrays.fill(out, 0, keys.length, null);
+            return;
+        }
+        var hashes = new int[Math.min(keys.length, BATCH_SIZE)];
+        var cells = new int[hashes.length];
+        var perfectIndex = this.perfectIndex;
+        var indexArray = perfectIndex == null ? indexArray() : null;
+        var positions = positions();
+        for (var start = 0; start < keys.length; start += BATCH_SIZE) {
+            var length = Math.min(BATCH_SIZE, keys.length - start);
+            for (var i = 0; i < length; i++) {
+                hashes[i] = mix(keys[start + i].hashCode());
+            }
+            if (perfectIndex != null) {
+                var bucketCount = perfectIndex[0];
+                var slotCount = perfectIndex.length - 1 - bucketCount;
+                for (var i = 0; i < length; i++) {
+                    cells[i] = perfectIndex[1 + fastRange(hashes[i], bucketCount)];
+                }
+                for (var i = 0; i < length; i++) {
+                    cells[i] = perfectIndex[1 + bucketCount + fastRange(mix(hashes[i] ^ cells[i]), slotCount)];
+                }
+                for (var i = 0; i < length; i++) {
+                    var index = cells[i] - 1;
+                    out[start + i] = index != -1 && key(index).equals(keys[start + i]) ? value(index) : null;
+                }
+            } else {
+                var mask = mask(indexArray);
+                for (var i = 0; i < length; i++) {
+                    cells[i] = indexArray[hashes[i] & mask];
+                }
+                for (var i = 0; i < length; i++) {
+                    var key = keys[start + i];
+                    var index = probe(indexArray, hashes[i], cells[i], j -> j < positions && key(j).equals(key));
+                    out[start + i] = index == -1 ? null : value(index);
+                }
+            }
+        }
+    }
+
+    @Override
+    public V get(Object key) {
+        Objects.requireNonNull(key);
+        var entryIndex = indexOf(key);
+        return entryIndex == -1 ? null : value(entryIndex);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) != -1;
     }
 
     @Override
@@ -143,28 +679,12 @@ public final class OrderedMap<K, V> extends AbstractMap<K, V> {
 
             @Override
             public Iterator<K> iterator() {
-                return new Iterator<>() {
-
-                    private final Iterator<Map.Entry<K, V>> entryIterator = entrySet().iterator();
-
-                    @Override
-                    public boolean hasNext() {
-                        return entryIterator.hasNext();
-                    }
-
-                    @Override
-                    public K next() {
-                        if(!hasNext()){
-                            throw new NoSuchElementException();
-                        }
-                        return entryIterator.next().getKey();
-                    }
-                };
+                return OrderedMap.this.iterator(OrderedMap.this::key);
             }
 
             @Override
             public int size() {
-                return entries.length;
+                return OrderedMap.this.size();
             }
 
             @Override
@@ -173,43 +693,31 @@ public final class OrderedMap<K, V> extends AbstractMap<K, V> {
                 return OrderedMap.this.containsKey(object);
             }
 
-            private static final class KeySpliterator<K> implements Spliterator<K> {
-
-                private final Spliterator<? extends Map.Entry<K, ?>> entrySpliterator;
-
-                private KeySpliterator(Spliterator<? extends Map.Entry<K, ?>> entrySpliterator){
-                    this.entrySpliterator = Objects.requireNonNull(entrySpliterator);
-                }
-
-                @Override
-                public boolean tryAdvance(Consumer<? super K> action) {
-                    return entrySpliterator.tryAdvance(entry -> action.accept(entry.getKey()));
-                }
+            @Override
+            public Spliterator<K> spliterator() {
+                return OrderedMap.this.spliterator(OrderedMap.this::key, Spliterator.DISTINCT | Spliterator.NONNULL);
+            }
 
-                @Override
-                public Spliterator<K> trySplit() {
-                    var split = entrySpliterator.trySplit();
-                    if (split == null) {
-                        return null;
-                    }
-                    return new KeySpliterator<>(split);
-                }
+        };
+    }
 
-                @Override
-                public long estimateSize() {
-                    return entrySpliterator.estimateSize();
-                }
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
 
-                @Override
-                public int characteristics() {
-                    return entrySpliterator.characteristics() | Spliterator.DISTINCT;
-                }
+            @Override
+            public Iterator<V> iterator() {
+                return OrderedMap.this.iterator(OrderedMap.this::value);
+            }
 
+            @Override
+            public int size() {
+                return OrderedMap.this.size();
             }
 
             @Override
-            public Spliterator<K> spliterator() {
-                return new KeySpliterator<>(entrySet().spliterator());
+            public Spliterator<V> spliterator() {
+                return OrderedMap.this.spliterator(OrderedMap.this::value, 0);
             }
 
         };
@@ -2277,4 +2277,617 @@ public final class OrderedMapTest {
     }
   }
 
+  @Nested
+  public class LookupIndex {
+
+    private record CollidingKey(int value) {
+      @Override
+      public int hashCode() {
+        return 42;
+      }
+    }
+
+    private static int averageProbeLength(Map.Entry<?, ?>[] entries) {
+      var lookupIndex = OrderedMap.lookupIndex(entries);
+      var mask = lookupIndex.length - 1;
+      var probes = 0L;
+      for (var entry : entries) {
+        var slot = OrderedMap.mix(entry.getKey().hashCode()) & mask;
+        while (!entries[(lookupIndex[slot] & mask) - 1].getKey().equals(entry.getKey())) {
+          slot = (slot + 1) & mask;
+          probes++;
+        }
+        probes++;
+      }
+      return (int) Math.ceil((double) probes / entries.length);
+    }
+
+    @Test
+    public void testLookupIndexIsAPowerOfTwoAtMostHalfFull() {
+      for (var size = 1; size < 100; size++) {
+        var entries = IntStream.range(0, size).mapToObj(i -> Map.entry(i, i)).toArray(Map.Entry<?, ?>[]::new);
+        var lookupIndex = OrderedMap.lookupIndex(entries);
+        assertEquals(1, Integer.bitCount(lookupIndex.length));
+        assertTrue(lookupIndex.length >= 2 * size);
+        assertEquals(size, Arrays.stream(lookupIndex).filter(cell -> cell != 0).count());
+      }
+    }
+
+    @Test
+    public void testClusteredIntegerKeysHaveShortProbes() {
+      var entries = IntStream.range(0, 100_000).mapToObj(i -> Map.entry(i * 64, i)).toArray(Map.Entry<?, ?>[]::new);
+      assertTrue(averageProbeLength(entries) <= 2);
+    }
+
+    @Test
+    public void testSequentialStringKeysHaveShortProbes() {
+      var entries = IntStream.range(0, 100_000).mapToObj(i -> Map.entry("key" + i, i)).toArray(Map.Entry<?, ?>[]::new);
+      assertTrue(averageProbeLength(entries) <= 2);
+    }
+
+    @Test
+    public void testGetWithClusteredKeys() {
+      var map = new LinkedHashMap<Integer, Integer>();
+      IntStream.range(0, 10_000).forEach(i -> map.put(i << 16, i));
+      var orderedMap = OrderedMap.of(map);
+      for (var i = 0; i < 10_000; i++) {
+        assertEquals(i, orderedMap.get(i << 16));
+        assertNull(orderedMap.get((i << 16) + 1));
+      }
+    }
+
+    @Test
+    public void testGetWithCollidingHashCodes() {
+      var map = new LinkedHashMap<CollidingKey, Integer>();
+      IntStream.range(0, 100).forEach(i -> map.put(new CollidingKey(i), i));
+      var orderedMap = OrderedMap.of(map);
+      for (var i = 0; i < 100; i++) {
+        assertEquals(i, orderedMap.get(new CollidingKey(i)));
+        assertTrue(orderedMap.containsKey(new CollidingKey(i)));
+      }
+      assertNull(orderedMap.get(new CollidingKey(100)));
+      assertFalse(orderedMap.containsKey(new CollidingKey(-1)));
+    }
+  }
+
+  @Nested
+  public class ConcurrentIndex {
+
+    private static int[] indexArrayOf(OrderedMap<?, ?> orderedMap) throws IllegalAccessException {
+      var arrayField = Arrays.stream(OrderedMap.class.getDeclaredFields())
+          .filter(field -> field.getType() == int[].class)
+          .findFirst().orElseThrow();
+      arrayField.setAccessible(true);
+      return (int[]) arrayField.get(orderedMap);
+    }
+
+    @Test
+    public void testOfIndexedComputesTheIndexEagerly() throws IllegalAccessException {
+      var orderedMap = OrderedMap.ofIndexed(Map.of("a", 1, "b", 2, "c", 3));
+      assertNotNull(indexArrayOf(orderedMap));
+      assertEquals(2, orderedMap.get("b"));
+      assertTrue(orderedMap.containsKey("c"));
+      assertNull(orderedMap.get("d"));
+    }
+
+    @Test
+    public void testOfIndexedKeepsInsertionOrder() {
+      var map = new LinkedHashMap<String, Integer>();
+      map.put("z", 1);
+      map.put("a", 2);
+      map.put("m", 3);
+      var orderedMap = OrderedMap.ofIndexed(map);
+      assertEquals(List.of("z", "a", "m"), List.copyOf(orderedMap.keySet()));
+      assertEquals(map, orderedMap);
+    }
+
+    @Test
+    public void testOfIndexedEmptyAndNull() {
+      assertNull(OrderedMap.ofIndexed(Map.of()).get("a"));
+      assertThrows(NullPointerException.class, () -> OrderedMap.ofIndexed(null));
+    }
+
+    @Test
+    public void testConcurrentReadersShareOneIndex() throws InterruptedException, IllegalAccessException {
+      var map = new LinkedHashMap<Integer, Integer>();
+      IntStream.range(0, 100_000).forEach(i -> map.put(i, -i));
+      var orderedMap = OrderedMap.of(map);
+      var start = new CountDownLatch(1);
+      var failures = new AtomicInteger();
+      var threads = new ArrayList<Thread>();
+      for (var t = 0; t < 8; t++) {
+        threads.add(Thread.ofPlatform().start(() -> {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            throw new AssertionError(e);
+          }
+          for (var i = 0; i < 100_000; i++) {
+            if (orderedMap.get(i) != -i) {
+              failures.incrementAndGet();
+            }
+          }
+        }));
+      }
+      start.countDown();
+      for (var thread : threads) {
+        thread.join();
+      }
+      assertEquals(0, failures.get());
+      var indexArray = indexArrayOf(orderedMap);
+      assertNotNull(indexArray);
+      orderedMap.get(42);
+      assertSame(indexArray, indexArrayOf(orderedMap));
+    }
+  }
+
+  @Nested
+  public class ColumnarStorage {
+
+    @Test
+    public void testNoEntryIsStored() {
+      for (var field : OrderedMap.class.getDeclaredFields()) {
+        assertNotEquals(Map.Entry[].class, field.getType(), field.getName());
+      }
+    }
+
+    @Test
+    public void testEntriesAreImmutableViews() {
+      var map = new LinkedHashMap<String, Integer>();
+      map.put("a", 1);
+      map.put("b", null);
+      var orderedMap = OrderedMap.of(map);
+      var entries = List.copyOf(orderedMap.entrySet());
+      assertEquals(List.of(Map.entry("a", 1)), entries.subList(0, 1));
+      assertEquals("b", entries.get(1).getKey());
+      assertNull(entries.get(1).getValue());
+      assertThrows(UnsupportedOperationException.class, () -> entries.get(0).setValue(2));
+      assertEquals(1, orderedMap.get("a"));
+    }
+
+    @Test
+    public void testEntrySpliteratorSplitsAndKeepsOrder() {
+      var map = new LinkedHashMap<Integer, String>();
+      IntStream.range(0, 10_000).forEach(i -> map.put(i, "" + i));
+      var orderedMap = OrderedMap.of(map);
+      var spliterator = orderedMap.entrySet().spliterator();
+      var prefix = spliterator.trySplit();
+      assertNotNull(prefix);
+      assertEquals(5_000, prefix.estimateSize());
+      assertEquals(5_000, spliterator.estimateSize());
+      assertEquals(List.copyOf(map.entrySet()), orderedMap.entrySet().parallelStream().toList());
+    }
+
+    @Test
+    public void testValuesAndKeysFollowInsertionOrder() {
+      var map = new LinkedHashMap<String, String>();
+      map.put("z", "last");
+      map.put("a", "first");
+      var orderedMap = OrderedMap.of(map);
+      assertEquals(List.of("z", "a"), List.copyOf(orderedMap.keySet()));
+      assertEquals(List.of("last", "first"), List.copyOf(orderedMap.values()));
+    }
+  }
+
+  @Nested
+  public class ViewSpliterators {
+
+    private static OrderedMap<Integer, String> orderedMapOf(int size) {
+      var map = new LinkedHashMap<Integer, String>();
+      IntStream.range(0, size).forEach(i -> map.put(size - i, i % 2 == 0 ? "even" : null));
+      return OrderedMap.of(map);
+    }
+
+    @Test
+    public void testCharacteristics() {
+      var orderedMap = orderedMapOf(100);
+      for (var spliterator : List.of(orderedMap.entrySet().spliterator(), orderedMap.keySet().spliterator())) {
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED));
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SUBSIZED));
+        assertTrue(spliterator.hasCharacteristics(Spliterator.DISTINCT));
+        assertTrue(spliterator.hasCharacteristics(Spliterator.NONNULL));
+        assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED));
+      }
+      var values = orderedMap.values().spliterator();
+      assertTrue(values.hasCharacteristics(Spliterator.SIZED));
+      assertTrue(values.hasCharacteristics(Spliterator.SUBSIZED));
+      assertFalse(values.hasCharacteristics(Spliterator.DISTINCT));
+      assertFalse(values.hasCharacteristics(Spliterator.NONNULL));
+    }
+
+    @Test
+    public void testSplitsEvenly() {
+      var orderedMap = orderedMapOf(1_001);
+      var spliterator = orderedMap.values().spliterator();
+      var prefix = spliterator.trySplit();
+      assertEquals(500, prefix.estimateSize());
+      assertEquals(501, spliterator.estimateSize());
+      assertEquals(prefix.getExactSizeIfKnown() + spliterator.getExactSizeIfKnown(), 1_001);
+    }
+
+    @Test
+    public void testParallelStreamsKeepOrder() {
+      var orderedMap = orderedMapOf(100_000);
+      assertEquals(List.copyOf(orderedMap.keySet()), orderedMap.keySet().parallelStream().toList());
+      assertEquals(new ArrayList<>(orderedMap.values()), orderedMap.values().parallelStream().toList());
+      assertEquals(List.copyOf(orderedMap.entrySet()), orderedMap.entrySet().parallelStream().toList());
+      assertEquals(50_000, orderedMap.values().parallelStream().filter(Objects::isNull).count());
+    }
+
+    @Test
+    public void testForEachRemainingAfterTryAdvance() {
+      var orderedMap = orderedMapOf(10);
+      var spliterator = orderedMap.keySet().spliterator();
+      var keys = new ArrayList<Integer>();
+      assertTrue(spliterator.tryAdvance(keys::add));
+      spliterator.forEachRemaining(keys::add);
+      assertFalse(spliterator.tryAdvance(keys::add));
+      assertEquals(List.of(10, 9, 8, 7, 6, 5, 4, 3, 2, 1), keys);
+    }
+
+    @Test
+    public void testForEach() {
+      var map = new LinkedHashMap<String, Integer>();
+      map.put("z", 26);
+      map.put("a", 1);
+      map.put("n", null);
+      var orderedMap = OrderedMap.of(map);
+      var builder = new StringBuilder();
+      orderedMap.forEach((key, value) -> builder.append(key).append('=').append(value).append(' '));
+      assertEquals("z=26 a=1 n=null ", builder.toString());
+      assertThrows(NullPointerException.class, () -> orderedMap.forEach(null));
+    }
+
+    @Test
+    public void testValuesView() {
+      var orderedMap = orderedMapOf(4);
+      assertEquals(4, orderedMap.values().size());
+      assertTrue(orderedMap.values().contains(null));
+      assertTrue(orderedMap.values().contains("even"));
+      assertFalse(orderedMap.values().contains("odd"));
+      assertThrows(UnsupportedOperationException.class, () -> orderedMap.values().add("odd"));
+    }
+  }
+
+  @Nested
+  public class PersistentUpdates {
+
+    private static OrderedMap<String, Integer> abc() {
+      var map = new LinkedHashMap<String, Integer>();
+      map.put("a", 1);
+      map.put("b", 2);
+      map.put("c", 3);
+      return OrderedMap.of(map);
+    }
+
+    @Test
+    public void testWithReplacesInPlaceOfTheOldValue() {
+      var orderedMap = abc();
+      var updated = OrderedMap.with(orderedMap, "b", 20);
+      assertEquals(List.of("a", "b", "c"), List.copyOf(updated.keySet()));
+      assertEquals(20, updated.get("b"));
+      assertEquals(2, orderedMap.get("b"));
+    }
+
+    @Test
+    public void testWithAppendsANewKey() {
+      var orderedMap = abc();
+      assertEquals(1, orderedMap.get("a"));
+      var updated = OrderedMap.with(orderedMap, "d", 4);
+      assertEquals(List.of("a", "b", "c", "d"), List.copyOf(updated.keySet()));
+      assertEquals(4, updated.get("d"));
+      assertEquals(3, updated.get("c"));
+      assertNull(orderedMap.get("d"));
+      assertEquals(3, orderedMap.size());
+    }
+
+    @Test
+    public void testWithSameValueReturnsTheSameMap() {
+      var orderedMap = abc();
+      assertSame(orderedMap, OrderedMap.with(orderedMap, "a", 1));
+    }
+
+    @Test
+    public void testWithout() {
+      var orderedMap = abc();
+      var updated = OrderedMap.without(orderedMap, "a");
+      assertEquals(List.of("b", "c"), List.copyOf(updated.keySet()));
+      assertNull(updated.get("a"));
+      assertEquals(3, updated.get("c"));
+      assertEquals(1, orderedMap.get("a"));
+      assertSame(orderedMap, OrderedMap.without(orderedMap, "z"));
+      assertTrue(OrderedMap.without(OrderedMap.without(updated, "b"), "c").isEmpty());
+    }
+
+    @Test
+    public void testWithAll() {
+      var orderedMap = abc();
+      var delta = new LinkedHashMap<String, Integer>();
+      delta.put("c", 30);
+      delta.put("e", 5);
+      delta.put("d", 4);
+      var updated = OrderedMap.withAll(orderedMap, delta);
+      assertEquals(List.of("a", "b", "c", "e", "d"), List.copyOf(updated.keySet()));
+      assertEquals(List.of(1, 2, 30, 5, 4), List.copyOf(updated.values()));
+      assertEquals(4, updated.get("d"));
+      var replaced = OrderedMap.withAll(orderedMap, Map.of("a", 10));
+      assertEquals(List.of(10, 2, 3), List.copyOf(replaced.values()));
+      assertEquals(3, replaced.size());
+      assertEquals(10, replaced.get("a"));
+      assertEquals(abc(), OrderedMap.withAll(orderedMap, Map.of()));
+    }
+
+    @Test
+    public void testManySmallDeltas() {
+      var orderedMap = OrderedMap.<Integer, Integer>of(Map.of());
+      var expected = new LinkedHashMap<Integer, Integer>();
+      var random = new Random(17);
+      for (var i = 0; i < 5_000; i++) {
+        var key = random.nextInt(1_000);
+        if (random.nextInt(4) == 0) {
+          orderedMap = OrderedMap.without(orderedMap, key);
+          expected.remove(key);
+        } else {
+          orderedMap = OrderedMap.with(orderedMap, key, i);
+          expected.put(key, i);
+        }
+        assertEquals(expected.get(key), orderedMap.get(key));
+      }
+      assertEquals(expected, orderedMap);
+      assertEquals(List.copyOf(expected.keySet()), List.copyOf(orderedMap.keySet()));
+    }
+
+    private static List<Object[]> chunksOf(OrderedMap<?, ?> orderedMap, String name) throws ReflectiveOperationException {
+      var field = OrderedMap.class.getDeclaredField(name);
+      field.setAccessible(true);
+      return List.of((Object[][]) field.get(orderedMap));
+    }
+
+    private static OrderedMap<Integer, Integer> range(int size) {
+      var map = new LinkedHashMap<Integer, Integer>();
+      IntStream.range(0, size).forEach(i -> map.put(i, -i));
+      return OrderedMap.of(map);
+    }
+
+    @Test
+    public void testUpdatesShareTheUntouchedChunks() throws ReflectiveOperationException {
+      var orderedMap = range(10_000);
+      var keys = chunksOf(orderedMap, "keys");
+      var values = chunksOf(orderedMap, "values");
+      var replaced = OrderedMap.with(orderedMap, 5_000, 0);
+      var appended = OrderedMap.with(orderedMap, 10_000, 0);
+      var removed = OrderedMap.without(orderedMap, 42);
+      var replacedValues = chunksOf(replaced, "values");
+      var removedKeys = chunksOf(removed, "keys");
+      assertSame(keys.get(0), chunksOf(replaced, "keys").get(0));
+      assertEquals(1, IntStream.range(0, values.size()).filter(i -> values.get(i) != replacedValues.get(i)).count());
+      assertEquals(keys.subList(0, keys.size() - 1), chunksOf(appended, "keys").subList(0, keys.size() - 1));
+      assertNotSame(keys.get(keys.size() - 1), chunksOf(appended, "keys").get(keys.size() - 1));
+      assertEquals(1, IntStream.range(0, keys.size()).filter(i -> keys.get(i) != removedKeys.get(i)).count());
+      assertEquals(0, replaced.get(5_000));
+      assertEquals(0, appended.get(10_000));
+      assertNull(removed.get(42));
+      assertEquals(-43, removed.get(43));
+      assertEquals(range(10_000), orderedMap);
+    }
+
+    @Test
+    public void testUpdatesOfTheSameMapDoNotSeeEachOther() {
+      var orderedMap = range(1_000);
+      assertEquals(-1, orderedMap.get(1));
+      var first = OrderedMap.with(orderedMap, 1_000, 1);
+      var second = OrderedMap.with(orderedMap, 2_000, 2);
+      var third = OrderedMap.with(OrderedMap.without(orderedMap, 7), 3_000, 3);
+      assertEquals(1, first.get(1_000));
+      assertNull(first.get(2_000));
+      assertEquals(2, second.get(2_000));
+      assertNull(second.get(1_000));
+      assertEquals(3, third.get(3_000));
+      assertNull(third.get(7));
+      assertNull(third.get(1_000));
+      assertNull(orderedMap.get(1_000));
+      assertNull(orderedMap.get(2_000));
+      assertEquals(1_000, orderedMap.size());
+      assertEquals(1_001, first.size());
+      assertEquals(1_001, second.size());
+      assertEquals(1_000, third.size());
+    }
+
+    @Test
+    public void testRemovedKeysAreSkippedByTheViews() {
+      var orderedMap = range(1_000);
+      var expected = new LinkedHashMap<Integer, Integer>();
+      IntStream.range(0, 1_000).forEach(i -> expected.put(i, -i));
+      for (var i = 0; i < 1_000; i += 3) {
+        orderedMap = OrderedMap.without(orderedMap, i);
+        expected.remove(i);
+      }
+      assertEquals(expected.size(), orderedMap.size());
+      assertEquals(List.copyOf(expected.keySet()), List.copyOf(orderedMap.keySet()));
+      assertEquals(List.copyOf(expected.values()), List.copyOf(orderedMap.values()));
+      assertEquals(List.copyOf(expected.keySet()), orderedMap.keySet().stream().toList());
+      assertEquals(expected.keySet().stream().mapToInt(i -> i).sum(),
+          orderedMap.keySet().parallelStream().mapToInt(i -> i).sum());
+      var spliterator = orderedMap.entrySet().spliterator();
+      var prefix = spliterator.trySplit();
+      assertEquals(expected.size(), prefix.estimateSize() + spliterator.estimateSize());
+      var keys = new ArrayList<Integer>();
+      prefix.forEachRemaining(entry -> keys.add(entry.getKey()));
+      assertEquals(expected.size() / 2, keys.size());
+      spliterator.forEachRemaining(entry -> keys.add(entry.getKey()));
+      assertEquals(List.copyOf(expected.keySet()), keys);
+    }
+
+    @Test
+    public void testMostlyRemovedMapIsCompacted() throws ReflectiveOperationException {
+      var orderedMap = range(1_000);
+      for (var i = 0; i < 900; i++) {
+        orderedMap = OrderedMap.without(orderedMap, i);
+      }
+      assertTrue(chunksOf(orderedMap, "keys").size() < 1_000 / 32);
+      assertEquals(IntStream.range(900, 1_000).boxed().toList(), List.copyOf(orderedMap.keySet()));
+      assertEquals(-950, orderedMap.get(950));
+      assertNull(orderedMap.get(0));
+    }
+
+    @Test
+    public void testNullArguments() {
+      var orderedMap = abc();
+      assertThrows(NullPointerException.class, () -> OrderedMap.with(orderedMap, null, 1));
+      assertThrows(NullPointerException.class, () -> OrderedMap.with(null, "a", 1));
+      assertThrows(NullPointerException.class, () -> OrderedMap.without(orderedMap, null));
+      assertThrows(NullPointerException.class, () -> OrderedMap.withAll(orderedMap, null));
+      var withNullKey = new HashMap<String, Integer>();
+      withNullKey.put(null, 1);
+      assertThrows(NullPointerException.class, () -> OrderedMap.withAll(orderedMap, withNullKey));
+    }
+  }
+
+  @Nested
+  public class PerfectHash {
+
+    private record CollidingKey(int value) {
+      @Override
+      public int hashCode() {
+        return 7;
+      }
+    }
+
+    @Test
+    public void testGetAndContainsKey() {
+      var map = new LinkedHashMap<String, Integer>();
+      IntStream.range(0, 50_000).forEach(i -> map.put("key" + i, i));
+      var orderedMap = OrderedMap.ofPerfect(map);
+      for (var i = 0; i < 50_000; i++) {
+        assertEquals(i, orderedMap.get("key" + i));
+        assertTrue(orderedMap.containsKey("key" + i));
+        assertFalse(orderedMap.containsKey("other" + i));
+      }
+      assertEquals(map, orderedMap);
+      assertEquals(List.copyOf(map.keySet()), List.copyOf(orderedMap.keySet()));
+    }
+
+    @Test
+    public void testPerfectIndexIsNearMinimal() {
+      for (var size : new int[] { 1, 2, 3, 10, 1_000, 100_000 }) {
+        var keys = IntStream.range(0, size).mapToObj(i -> i * 31).toArray();
+        var perfectIndex = OrderedMap.perfectIndex(keys);
+        assertNotNull(perfectIndex);
+        assertTrue(perfectIndex.length <= 1 + size + size / 4 + size / 8 + 1, "" + size);
+        assertEquals(size, Arrays.stream(perfectIndex, 1 + perfectIndex[0], perfectIndex.length).filter(cell -> cell != 0).count());
+      }
+    }
+
+    @Test
+    public void testLazyIndexIsNeverBuilt() throws IllegalAccessException {
+      var arrayField = Arrays.stream(OrderedMap.class.getDeclaredFields())
+          .filter(field -> field.getType() == int[].class)
+          .findFirst().orElseThrow();
+      arrayField.setAccessible(true);
+      var orderedMap = OrderedMap.ofPerfect(Map.of("a", 1, "b", 2, "c", 3));
+      assertEquals(2, orderedMap.get("b"));
+      assertNull(orderedMap.get("d"));
+      assertNull(arrayField.get(orderedMap));
+    }
+
+    @Test
+    public void testCollidingHashCodesFallBackToProbing() {
+      var map = new LinkedHashMap<CollidingKey, Integer>();
+      IntStream.range(0, 50).forEach(i -> map.put(new CollidingKey(i), i));
+      assertNull(OrderedMap.perfectIndex(map.keySet().toArray()));
+      var orderedMap = OrderedMap.ofPerfect(map);
+      for (var i = 0; i < 50; i++) {
+        assertEquals(i, orderedMap.get(new CollidingKey(i)));
+      }
+      assertFalse(orderedMap.containsKey(new CollidingKey(50)));
+    }
+
+    @Test
+    public void testEmptyAndUpdates() {
+      assertNull(OrderedMap.ofPerfect(Map.of()).get("a"));
+      assertThrows(NullPointerException.class, () -> OrderedMap.ofPerfect(null));
+      var orderedMap = OrderedMap.ofPerfect(Map.of("a", 1, "b", 2));
+      assertThrows(NullPointerException.class, () -> orderedMap.get(null));
+      var replaced = OrderedMap.with(orderedMap, "a", 10);
+      assertEquals(10, replaced.get("a"));
+      var appended = OrderedMap.with(orderedMap, "c", 3);
+      assertEquals(3, appended.get("c"));
+      assertEquals(2, appended.get("b"));
+      assertNull(OrderedMap.without(orderedMap, "b").get("b"));
+    }
+  }
+
+  @Nested
+  public class BulkLookup {
+
+    @Test
+    public void testGetAllArray() {
+      var map = new LinkedHashMap<String, Integer>();
+      IntStream.range(0, 1_000).forEach(i -> map.put("key" + i, i));
+      var orderedMap = OrderedMap.of(map);
+      var keys = IntStream.range(0, 2_000).mapToObj(i -> "key" + i).toArray(String[]::new);
+      var out = new Integer[keys.length];
+      OrderedMap.getAll(orderedMap, keys, out);
+      for (var i = 0; i < keys.length; i++) {
+        assertEquals(i < 1_000 ? i : null, out[i]);
+      }
+    }
+
+    @Test
+    public void testGetAllCollection() {
+      var orderedMap = OrderedMap.of(Map.of("a", 1, "b", 2, "c", 3));
+      assertEquals(Arrays.asList(3, null, 1, 1), OrderedMap.getAll(orderedMap, List.of("c", "d", "a", "a")));
+      assertEquals(List.of(), OrderedMap.getAll(orderedMap, List.of()));
+    }
+
+    @Test
+    public void testGetAllCollectionIsUnmodifiable() {
+      var orderedMap = OrderedMap.of(Map.of("a", 1));
+      var values = OrderedMap.getAll(orderedMap, List.of("a"));
+      assertThrows(UnsupportedOperationException.class, () -> values.set(0, 2));
+    }
+
+    @Test
+    public void testGetAllPerfect() {
+      var map = new LinkedHashMap<Integer, String>();
+      IntStream.range(0, 10_000).forEach(i -> map.put(i * 7, "" + i));
+      var orderedMap = OrderedMap.ofPerfect(map);
+      var keys = IntStream.range(0, 70_000).boxed().toList();
+      var values = OrderedMap.getAll(orderedMap, keys);
+      for (var i = 0; i < keys.size(); i++) {
+        assertEquals(orderedMap.get(i), values.get(i));
+      }
+    }
+
+    @Test
+    public void testGetAllWithNullValues() {
+      var map = new LinkedHashMap<String, Integer>();
+      map.put("a", null);
+      map.put("b", 2);
+      var orderedMap = OrderedMap.of(map);
+      assertEquals(Arrays.asList(null, 2, null), OrderedMap.getAll(orderedMap, List.of("a", "b", "c")));
+    }
+
+    @Test
+    public void testGetAllEmpty() {
+      var orderedMap = OrderedMap.<String, Integer>of(Map.of());
+      var out = new Integer[] { 1, 2 };
+      OrderedMap.getAll(orderedMap, new String[] { "a", "b" }, out);
+      assertArrayEquals(new Integer[] { null, null }, out);
+    }
+
+    @Test
+    public void testGetAllOutTooSmall() {
+      var orderedMap = OrderedMap.of(Map.of("a", 1));
+      assertThrows(IndexOutOfBoundsException.class, () -> OrderedMap.getAll(orderedMap, new String[] { "a", "b" }, new Integer[1]));
+    }
+
+    @Test
+    public void testGetAllNullKey() {
+      var orderedMap = OrderedMap.of(Map.of("a", 1));
+      assertThrows(NullPointerException.class, () -> OrderedMap.getAll(orderedMap, new String[] { "a", null }, new Integer[2]));
+      assertThrows(NullPointerException.class, () -> OrderedMap.getAll(OrderedMap.<String, Integer>of(Map.of()), new String[] { null }, new Integer[1]));
+      assertThrows(NullPointerException.class, () -> OrderedMap.getAll(orderedMap, null));
+    }
+  }
 }
\ No newline at end of file
@@ -0,0 +1,90 @@
+package fr.uge.orderedmap;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+// Values and lazy index of the maps with primitive keys, the subclasses only store the keys and probe them
+abstract sealed class PrimitiveOrderedMap<K, V> extends AbstractMap<K, V> permits IntOrderedMap, LongOrderedMap {
+
+    private static final VarHandle INDEX_ARRAY;
+
+    static {
+        try {
+            INDEX_ARRAY = MethodHandles.lookup().findVarHandle(PrimitiveOrderedMap.class, "indexArray", int[].class);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private final Object[] values;
+
+    private int[] indexArray;
+
+    PrimitiveOrderedMap(Object[] values) {
+        this.values = values;
+        super();
+    }
+
+    abstract K key(int index);
+
+    abstract int keyHashCode(int index);
+
+    @SuppressWarnings("unchecked")
+    final V value(int index) {
+        return (V) values[index];
+    }
+
+    // Nothing is allocated once the index is built, the slow path goes through the shared lazy initialization
+    final int[] indexArray() {
+        var indexArray = (int[]) INDEX_ARRAY.getAcquire(this);
+        return indexArray != null ? indexArray : OrderedMap.lookupIndex(INDEX_ARRAY, this, values,
+                () -> OrderedMap.lookupIndex(values.length, this::keyHashCode));
+    }
+
+    @Override
+    public final int size() {
+        return values.length;
+    }
+
+    @Override
+    public final Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new Iterator<>() {
+
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < values.length;
+                    }
+
+                    @Override
+                    public Entry<K, V> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        var entry = new AbstractMap.SimpleImmutableEntry<>(key(index), value(index));
+                        index++;
+                        return entry;
+                    }
+
+                };
+            }
+
+            @Override
+            public int size() {
+                return values.length;
+            }
+
+        };
+    }
+
+}
@@ -0,0 +1,132 @@
+package fr.uge.orderedmap;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import module java.base;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The tests shared by IntOrderedMapTest and LongOrderedMapTest, keys are built from ints by key()
+abstract class PrimitiveOrderedMapTest<K> {
+
+  abstract <V> Map<K, V> of(Map<K, ? extends V> map);
+
+  abstract K key(int value);
+
+  // (value << shift) + low, with shift large enough that the keys only differ by their high bits
+  abstract K clusteredKey(int value, int low);
+
+  // Looks the keys from to to up with the primitive containsKey, returns how many are present
+  abstract int countPresent(Map<K, ?> map, int from, int to);
+
+  // Calls the primitive get(int) or get(long)
+  abstract <V> V get(Map<K, V> map, K key);
+
+  abstract boolean containsKey(Map<K, ?> map, K key);
+
+  // A boxed number of the other primitive type
+  abstract Object otherBoxedKey(int value);
+
+  abstract Class<?> mapClass();
+
+  @Test
+  public void testGetAndContainsKey() {
+    var map = new LinkedHashMap<K, String>();
+    map.put(key(42), "foo");
+    map.put(key(-7), "bar");
+    map.put(key(0), null);
+    var orderedMap = of(map);
+    assertEquals(3, orderedMap.size());
+    assertEquals("foo", get(orderedMap, key(42)));
+    assertEquals("bar", get(orderedMap, key(-7)));
+    assertNull(get(orderedMap, key(0)));
+    assertTrue(containsKey(orderedMap, key(0)));
+    assertFalse(containsKey(orderedMap, key(1)));
+    assertNull(get(orderedMap, key(1)));
+  }
+
+  @Test
+  public void testBoxedAccess() {
+    var orderedMap = of(Map.of(key(1), "one", key(2), "two"));
+    assertEquals("one", orderedMap.get(key(1)));
+    assertTrue(orderedMap.containsKey(key(2)));
+    assertNull(orderedMap.get("1"));
+    assertFalse(orderedMap.containsKey(otherBoxedKey(1)));
+    assertThrows(NullPointerException.class, () -> orderedMap.get(null));
+    assertThrows(NullPointerException.class, () -> orderedMap.containsKey(null));
+  }
+
+  @Test
+  public void testInsertionOrder() {
+    var map = new LinkedHashMap<K, Integer>();
+    IntStream.range(0, 1_000).map(i -> 999 - i).forEach(i -> map.put(key(i), i * 2));
+    var orderedMap = of(map);
+    assertEquals(List.copyOf(map.keySet()), List.copyOf(orderedMap.keySet()));
+    assertEquals(List.copyOf(map.values()), List.copyOf(orderedMap.values()));
+    assertEquals(map, orderedMap);
+    assertEquals(map.hashCode(), orderedMap.hashCode());
+  }
+
+  @Test
+  public void testEmpty() {
+    var orderedMap = this.<String>of(Map.of());
+    assertTrue(orderedMap.isEmpty());
+    assertNull(get(orderedMap, key(0)));
+    assertFalse(containsKey(orderedMap, key(0)));
+    assertEquals("{}", orderedMap.toString());
+  }
+
+  @Test
+  public void testClusteredKeys() {
+    var map = new LinkedHashMap<K, Integer>();
+    IntStream.range(0, 100_000).forEach(i -> map.put(clusteredKey(i, 0), i));
+    var orderedMap = of(map);
+    for (var i = 0; i < 100_000; i++) {
+      assertEquals(i, get(orderedMap, clusteredKey(i, 0)));
+      assertFalse(containsKey(orderedMap, clusteredKey(i, 1)));
+    }
+  }
+
+  @Test
+  public void testPrimitiveLookupsDoNotAllocate() {
+    var map = new LinkedHashMap<K, Integer>();
+    IntStream.range(0, 1_000).forEach(i -> map.put(key(i), i));
+    var orderedMap = of(map);
+    assertEquals(1_000, countPresent(orderedMap, 0, 2_000)); // Builds the index
+    var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    var threadId = Thread.currentThread().threadId();
+    var before = threadBean.getThreadAllocatedBytes(threadId);
+    var present = countPresent(orderedMap, 0, 100_000);
+    var allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+    assertEquals(1_000, present);
+    assertTrue(allocated < 10_000, "allocated " + allocated + " bytes"); // Even interpreted, 16 bytes per call would be 1.6 MB
+  }
+
+  @Test
+  public void testIsImmutable() {
+    var orderedMap = of(Map.of(key(1), "one"));
+    assertThrows(UnsupportedOperationException.class, () -> orderedMap.put(key(2), "two"));
+    assertThrows(UnsupportedOperationException.class, () -> orderedMap.entrySet().iterator().next().setValue("uno"));
+  }
+
+  @Test
+  public void testNullMapOrKey() {
+    assertThrows(NullPointerException.class, () -> of(null));
+    var map = new HashMap<K, String>();
+    map.put(null, "null");
+    assertThrows(NullPointerException.class, () -> of(map));
+  }
+
+  @Test
+  public void testFieldsArePrivate() {
+    for (var field : mapClass().getDeclaredFields()) {
+      assertTrue(field.accessFlags().contains(AccessFlag.PRIVATE), field.getName());
+    }
+    for (var field : PrimitiveOrderedMap.class.getDeclaredFields()) {
+      assertTrue(field.accessFlags().contains(AccessFlag.PRIVATE), field.getName());
+    }
+    assertEquals(0, mapClass().getConstructors().length);
+  }
+}
@@ -1,18 +1,26 @@
 package fr.uge.partitionvec;
 
 import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
 public final class PartitionVec<T> implements Collection<T> {
 
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+
     private T[] values;
 
     private int nextEmptyIndex;
@@ -138,8 +146,12 @@ public final class PartitionVec<T> implements Collection<T> {
         if(values == null){
             return 0;
         }
-        int i = 0;
-        int limit = nextEmptyIndex;
+        return partitionAndReturnLimit(predicate, 0, nextEmptyIndex);
+    }
+
+    private int partitionAndReturnLimit(Predicate<? super T> predicate, int start, int end){
+        int i = start;
+        int limit = end;
         while(i < limit){
             var actualElement = values[i];
             if(predicate.test(actualElement)){
@@ -156,8 +168,73 @@ public final class PartitionVec<T> implements Collection<T> {
         PartitionView<T> otherPartition();
     }
 
+    private static void swapBlocks(Object[] values, int from, int to, int length){
+        if (length <= PARALLEL_THRESHOLD) {
+            for (var i = 0; i < length; i++) {
+                var element = values[from + i];
+                values[from + i] = values[to + i];
+                values[to + i] = element;
+            }
+            return;
+        }
+        var half = length >>> 1;
+        ForkJoinTask.invokeAll(
+            ForkJoinTask.adapt(() -> swapBlocks(values, from, to, half)),
+            ForkJoinTask.adapt(() -> swapBlocks(values, from + half, to + half, length - half)));
+    }
+
+    // Each block is partitioned on its own, then the false part of the left block and the true part
+    // of the right block are exchanged, only the shortest of the two needs to move
+    private int parallelPartitionAndReturnLimit(Predicate<? super T> predicate){
+        if(nextEmptyIndex <= PARALLEL_THRESHOLD){
+            return partitionAndReturnLimit(predicate);
+        }
+        var values = this.values;
+        @SuppressWarnings("serial") // Never serialized, it only lives during the fork-join computation
+        final class PartitionTask extends RecursiveTask<Integer> {
+
+            private final int start;
+
+            private final int end;
+
+            private PartitionTask(int start, int end){
+                this.start = start;
+                this.end = end;
+            }
+
+            @Override
+            protected Integer compute() {
+                if (end - start <= PARALLEL_THRESHOLD) {
+                    return partitionAndReturnLimit(predicate, start, end);
+                }
+                var middle = (start + end) >>> 1;
+                var left = new PartitionTask(start, middle);
+                var right = new PartitionTask(middle, end);
+                left.fork();
+                right.quietlyInvoke();
+                left.quietlyJoin(); // Both halves must be done before an exception escapes
+                var leftLimit = left.join();
+                var rightLimit = right.join();
+                var length = Math.min(middle - leftLimit, rightLimit - middle);
+                swapBlocks(values, leftLimit, rightLimit - length, length);
+                return leftLimit + rightLimit - middle;
+            }
+        }
+        return ForkJoinPool.commonPool().invoke(new PartitionTask(0, nextEmptyIndex));
+    }
+
     public PartitionView<T> partition(Predicate<? super T> predicate){
         Objects.requireNonNull(predicate);
+        return partitionView(partitionAndReturnLimit(predicate));
+    }
+
+    // The predicate may be called concurrently from several threads
+    public PartitionView<T> parallelPartition(Predicate<? super T> predicate){
+        Objects.requireNonNull(predicate);
+        return partitionView(parallelPartitionAndReturnLimit(predicate));
+    }
+
+    private PartitionView<T> partitionView(int limit){
         var vec = PartitionVec.this;
         final class PartitionViewImpl extends AbstractList<T> implements PartitionVec.PartitionView<T> {
 
@@ -207,7 +284,84 @@ public final class PartitionVec<T> implements Collection<T> {
             }
 
         }
-        return new PartitionViewImpl(0, partitionAndReturnLimit(predicate), vec.nextEmptyIndex, ++vec.version);
+        return new PartitionViewImpl(0, limit, vec.nextEmptyIndex, ++vec.version);
+    }
+
+    // American flag permutation: count the buckets, then move every misplaced element
+    // along its cycle to the next free slot of its bucket, the classifier is called twice per element
+    private int[] partitionIntoBuckets(ToIntFunction<? super T> classifier, int k){
+        var bounds = new int[k + 1];
+        for (var i = 0; i < nextEmptyIndex; i++) {
+            bounds[Objects.checkIndex(classifier.applyAsInt(values[i]), k) + 1]++;
+        }
+        for (var bucket = 0; bucket < k; bucket++) {
+            bounds[bucket + 1] += bounds[bucket];
+        }
+        var next = Arrays.copyOf(bounds, k);
+        for (var bucket = 0; bucket < k; bucket++) {
+            while (next[bucket] < bounds[bucket + 1]) {
+                var element = values[next[bucket]];
+                try {
+                    var target = Objects.checkIndex(classifier.applyAsInt(element), k);
+                    while (target != bucket) {
+                        if (next[target] == bounds[target + 1]) {
+                            throw new IllegalStateException("The classifier is not consistent");
+                        }
+                        var displaced = values[next[target]];
+                        values[next[target]++] = element;
+                        element = displaced;
+                        target = Objects.checkIndex(classifier.applyAsInt(element), k);
+                    }
+                } finally {
+                    values[next[bucket]] = element; // Closes the cycle, values stays a permutation even on failure
+                }
+                next[bucket]++;
+            }
+        }
+        return bounds;
+    }
+
+    public List<List<T>> partition(ToIntFunction<? super T> classifier, int k){
+        Objects.requireNonNull(classifier);
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        var vec = PartitionVec.this;
+        final class BucketView extends AbstractList<T> {
+
+            private final int start;
+
+            private final int end;
+
+            private final int currentViewVersion;
+
+            private BucketView(int start, int end, int version){
+                this.currentViewVersion = version;
+                this.start = start;
+                this.end = end;
+            }
+
+            @Override
+            public T get(int index) {
+                Objects.checkIndex(index, size());
+                if(vec.version != currentViewVersion){
+                    throw new IllegalStateException("The PartitionVec has been modified since this view creation");
+                }
+                return vec.values[start + index];
+            }
+
+            @Override
+            public int size() {
+                return end - start;
+            }
+        }
+        var version = ++vec.version;
+        var bounds = values == null ? new int[k + 1] : partitionIntoBuckets(classifier, k);
+        var views = new ArrayList<List<T>>(k);
+        for (var bucket = 0; bucket < k; bucket++) {
+            views.add(new BucketView(bounds[bucket], bounds[bucket + 1], version));
+        }
+        return Collections.unmodifiableList(views);
     }
 
     @Override
@@ -16,6 +16,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Random;
 import java.util.Set;
 import java.util.stream.Stream;
 
@@ -1211,4 +1212,245 @@ public final class PartitionVecTest {
         }
     }
 
+    @Nested
+    public final class MultiWayPartition {
+
+        @Test
+        public void testPartitionIntoBuckets() {
+            var vec = new PartitionVec<Integer>();
+            for (var i = 0; i < 20; i++) {
+                vec.add(i);
+            }
+            var buckets = vec.partition(i -> i % 3, 3);
+
+            assertEquals(3, buckets.size());
+            assertEquals(Set.of(0, 3, 6, 9, 12, 15, 18), new HashSet<>(buckets.get(0)));
+            assertEquals(Set.of(1, 4, 7, 10, 13, 16, 19), new HashSet<>(buckets.get(1)));
+            assertEquals(Set.of(2, 5, 8, 11, 14, 17), new HashSet<>(buckets.get(2)));
+            var all = new ArrayList<Integer>();
+            buckets.forEach(all::addAll);
+            assertEquals(Arrays.asList(vec.toArray()), all);
+        }
+
+        @Test
+        public void testEmptyBuckets() {
+            var vec = new PartitionVec<String>();
+            vec.add("a");
+            vec.add("bb");
+            var buckets = vec.partition(String::length, 5);
+
+            assertEquals(List.of(List.of(), List.of("a"), List.of("bb"), List.of(), List.of()), buckets);
+        }
+
+        @Test
+        public void testOnEmptyVec() {
+            var vec = new PartitionVec<String>();
+            var buckets = vec.partition(_ -> 0, 2);
+
+            assertEquals(List.of(List.of(), List.of()), buckets);
+        }
+
+        @Test
+        public void testSingleBucket() {
+            var vec = new PartitionVec<String>();
+            vec.addAll(List.of("x", "y", "z"));
+
+            assertEquals(List.of(List.of("x", "y", "z")), vec.partition(_ -> 0, 1));
+        }
+
+        @Test
+        public void testViewsShareTheVersion() {
+            var vec = new PartitionVec<Integer>();
+            vec.addAll(List.of(1, 2, 3, 4));
+            var buckets = vec.partition(i -> i % 2, 2);
+            var iterator = vec.iterator();
+            assertEquals(2, buckets.get(0).size());
+
+            vec.partition(i -> i % 2 == 0);
+
+            assertThrows(IllegalStateException.class, () -> buckets.get(0).get(0));
+            assertThrows(IllegalStateException.class, () -> buckets.get(1).get(0));
+            assertThrows(IllegalStateException.class, iterator::next);
+        }
+
+        @Test
+        public void testPredicateViewsAreInvalidated() {
+            var vec = new PartitionVec<Integer>();
+            vec.addAll(List.of(1, 2, 3, 4));
+            var view = vec.partition(i -> i < 3);
+
+            vec.partition(i -> i % 2, 2);
+
+            assertThrows(IllegalStateException.class, () -> view.get(0));
+        }
+
+        @Test
+        public void testViewsAreUnmodifiable() {
+            var vec = new PartitionVec<Integer>();
+            vec.addAll(List.of(1, 2));
+            var buckets = vec.partition(i -> i % 2, 2);
+
+            assertThrows(UnsupportedOperationException.class, () -> buckets.get(0).set(0, 3));
+            assertThrows(UnsupportedOperationException.class, () -> buckets.add(List.of()));
+        }
+
+        @Test
+        public void testBadArguments() {
+            var vec = new PartitionVec<Integer>();
+            vec.addAll(List.of(1, 2));
+
+            assertThrows(NullPointerException.class, () -> vec.partition(null, 2));
+            assertThrows(IllegalArgumentException.class, () -> vec.partition(i -> 0, 0));
+            assertThrows(IndexOutOfBoundsException.class, () -> vec.partition(i -> i, 2));
+            assertThrows(IndexOutOfBoundsException.class, () -> vec.partition(i -> -1, 2));
+        }
+
+        @Test
+        public void testInconsistentClassifierKeepsTheElements() {
+            var vec = new PartitionVec<Integer>();
+            for (var i = 0; i < 100; i++) {
+                vec.add(i);
+            }
+            var calls = new int[1];
+
+            assertThrows(IllegalStateException.class, () -> vec.partition(i -> calls[0]++ < 100 ? i % 4 : 0, 4));
+
+            var elements = new HashSet<>(Arrays.asList(vec.toArray()));
+            assertEquals(100, elements.size());
+        }
+
+        @Test
+        public void testPartitionFastEnough() {
+            var vec = new PartitionVec<Integer>();
+            for (var i = 0; i < 1_000_000; i++) {
+                vec.add(i);
+            }
+
+            assertTimeoutPreemptively(Duration.ofSeconds(1), () -> {
+                var buckets = vec.partition(i -> i % 16, 16);
+                for (var bucket = 0; bucket < 16; bucket++) {
+                    assertEquals(62_500, buckets.get(bucket).size());
+                    assertEquals(bucket, buckets.get(bucket).get(0) % 16);
+                    assertEquals(bucket, buckets.get(bucket).getLast() % 16);
+                }
+            });
+        }
+    }
+
+    @Nested
+    public final class ParallelPartition {
+
+        @Test
+        public void testParallelPartition() {
+            var vec = new PartitionVec<Integer>();
+            for (var i = 0; i < 1_000_000; i++) {
+                vec.add(i);
+            }
+            var multiplesOfThree = vec.parallelPartition(i -> i % 3 == 0);
+            var others = multiplesOfThree.otherPartition();
+
+            assertEquals(333_334, multiplesOfThree.size());
+            assertEquals(666_666, others.size());
+            assertTrue(multiplesOfThree.stream().allMatch(i -> i % 3 == 0));
+            assertTrue(others.stream().allMatch(i -> i % 3 != 0));
+            assertEquals(1_000_000, new HashSet<>(Arrays.asList(vec.toArray())).size());
+        }
+
+        @Test
+        public void testSameSidesAsSequentialPartition() {
+            var vec = new PartitionVec<Integer>();
+            var sequential = new PartitionVec<Integer>();
+            var random = new Random(0);
+            for (var i = 0; i < 300_000; i++) {
+                var value = random.nextInt(1_000);
+                vec.add(value);
+                sequential.add(value);
+            }
+            var view = vec.parallelPartition(i -> i < 137);
+            var expected = sequential.partition(i -> i < 137);
+
+            assertEquals(expected.size(), view.size());
+            assertEquals(expected.stream().sorted().toList(), view.stream().sorted().toList());
+            assertEquals(expected.otherPartition().stream().sorted().toList(), view.otherPartition().stream().sorted().toList());
+        }
+
+        @Test
+        public void testAllTrueAllFalse() {
+            var vec = new PartitionVec<Integer>();
+            for (var i = 0; i < 100_000; i++) {
+                vec.add(i);
+            }
+
+            assertEquals(100_000, vec.parallelPartition(_ -> true).size());
+            assertEquals(0, vec.parallelPartition(_ -> false).size());
+            assertEquals(100_000, vec.parallelPartition(_ -> false).otherPartition().size());
+        }
+
+        @Test
+        public void testSmallVecFallsBackToSequential() {
+            var vec = new PartitionVec<String>();
+            vec.addAll(List.of("a", "bb", "c", "dd"));
+            var view = vec.parallelPartition(s -> s.length() == 1);
+
+            assertEquals(Set.of("a", "c"), new HashSet<>(view));
+            assertEquals(Set.of("bb", "dd"), new HashSet<>(view.otherPartition()));
+        }
+
+        @Test
+        public void testOnEmptyVec() {
+            var vec = new PartitionVec<String>();
+            var view = vec.parallelPartition(_ -> true);
+
+            assertEquals(0, view.size());
+            assertEquals(0, view.otherPartition().size());
+        }
+
+        @Test
+        public void testInvalidatesPreviousViews() {
+            var vec = new PartitionVec<Integer>();
+            for (var i = 0; i < 100_000; i++) {
+                vec.add(i);
+            }
+            var view = vec.partition(i -> i % 2 == 0);
+            var iterator = vec.iterator();
+
+            var parallelView = vec.parallelPartition(i -> i < 10);
+
+            assertThrows(IllegalStateException.class, () -> view.get(0));
+            assertThrows(IllegalStateException.class, iterator::next);
+            assertEquals(10, parallelView.size());
+        }
+
+        @Test
+        public void testPredicateExceptionKeepsTheElements() {
+            var vec = new PartitionVec<Integer>();
+            for (var i = 0; i < 200_000; i++) {
+                vec.add(i);
+            }
+
+            assertThrows(ArithmeticException.class, () -> vec.parallelPartition(i -> 1 / (i - 150_000) > 0));
+
+            assertEquals(200_000, new HashSet<>(Arrays.asList(vec.toArray())).size());
+        }
+
+        @Test
+        public void testNullPredicate() {
+            var vec = new PartitionVec<Integer>();
+            vec.add(1);
+
+            assertThrows(NullPointerException.class, () -> vec.parallelPartition(null));
+        }
+
+        @Test
+        public void testParallelPartitionFastEnough() {
+            var vec = new PartitionVec<Integer>();
+            for (var i = 0; i < 5_000_000; i++) {
+                vec.add(i);
+            }
+
+            assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+                assertEquals(2_500_000, vec.parallelPartition(i -> i % 2 == 0).size());
+            });
+        }
+    }
 }
\ No newline at end of file